@@ -0,0 +1,61 @@
+package com.alphawang.diff.benchmark;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.ObjectDiff;
+import com.alphawang.diff.format.DiffResultFormatter;
+import com.alphawang.diff.format.FormatOptions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of large results, to a String and streamed to an OutputStream.
+ * Each line of the {@link Shapes#order} differs in two fields, so there are two differences per line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffResultFormatterBenchmark {
+
+    @Param({"1000", "50000"})
+    private int lines;
+
+    private DiffResult diffResult;
+    private final OutputStream nullOutput = ByteStreams.nullOutputStream();
+
+    @Setup
+    public void setup() {
+        diffResult = ObjectDiff.newInstance()
+            .withIdentities(ImmutableMap.of("orderId", 1L))
+            .withLeft(Shapes.order(lines, false))
+            .withRight(Shapes.order(lines, true))
+            .diff();
+    }
+
+    @Benchmark
+    public String formatToString() {
+        return DiffResultFormatter.format(diffResult, ImmutableMap.of());
+    }
+
+    @Benchmark
+    public void formatToStream() throws IOException {
+        DiffResultFormatter.formatTo(diffResult, ImmutableMap.of(), FormatOptions.unlimited(), nullOutput);
+    }
+}
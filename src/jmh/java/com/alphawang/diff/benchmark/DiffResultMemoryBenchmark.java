@@ -0,0 +1,93 @@
+package com.alphawang.diff.benchmark;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.alphawang.diff.ValueRetention;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by a {@link DiffResult} of many differences, with the default and the compact layout.
+ * Paths look like /orders/i/lines/j/price, built for each difference as the diff does, and the values are shared.
+ * {@code bytesPerDifference} is the used heap after a full GC, minus the one at the start of the iteration;
+ * the time includes those GCs and is only indicative.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class DiffResultMemoryBenchmark {
+
+    private static final int LINES_PER_ORDER = 100;
+
+    @Param({"1000000"})
+    private int differences;
+
+    @Param({"false", "true"})
+    private boolean compact;
+
+    private Integer[] values;
+    private DiffResult retained;
+
+    @Setup
+    public void setup() {
+        values = new Integer[differences + 1];
+        for (int i = 0; i <= differences; i++) {
+            values[i] = i;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        public long bytesPerDifference;
+        long usedBefore;
+
+        @Setup(Level.Iteration)
+        public void before() {
+            usedBefore = usedAfterGc();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void release() {
+        retained = null;
+    }
+
+    @Benchmark
+    public DiffResult build(Retained counters) {
+        DiffResult result = new DiffResult(ImmutableMap.of(), null, null, ValueRetention.FULL, compact);
+        for (int i = 0; i < differences; i++) {
+            String path = "/orders/" + i / LINES_PER_ORDER + "/lines/" + i % LINES_PER_ORDER + "/price";
+            result.add(Difference.of(path, Difference.DifferenceType.VALUE_NOT_EQUALS, values[i], values[i + 1]));
+        }
+        retained = result;
+        counters.bytesPerDifference = (usedAfterGc() - counters.usedBefore) / differences;
+        return result;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
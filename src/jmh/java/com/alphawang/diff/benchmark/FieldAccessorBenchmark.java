@@ -0,0 +1,73 @@
+package com.alphawang.diff.benchmark;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.ObjectDiff;
+import com.alphawang.diff.plan.FieldAccessorFactory;
+import com.alphawang.diff.plan.FieldAccessors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link java.lang.reflect.Field#get} against {@link java.lang.invoke.MethodHandle} field access in diffObject.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAccessorBenchmark {
+
+    @Param({"reflection", "methodHandle"})
+    private String accessor;
+
+    private ObjectDiff objectDiff;
+
+    @Setup
+    public void setup() {
+        FieldAccessorFactory accessorFactory = "reflection".equals(accessor) ? FieldAccessors.reflection() : FieldAccessors.methodHandle();
+        objectDiff = ObjectDiff.newInstance()
+            .withFieldAccessorFactory(accessorFactory)
+            .withLeft(new Dto(1L, 2L, 3, 4, true, 0.5d, "name"))
+            .withRight(new Dto(1L, 2L, 3, 5, true, 0.5d, "name"));
+    }
+
+    /**
+     * The differ is built on the first call and reused, so only the diff itself is measured.
+     */
+    @Benchmark
+    public DiffResult diffObject() {
+        return objectDiff.diff();
+    }
+
+    static class Dto {
+        private final long id;
+        private final long version;
+        private final int count;
+        private final int quantity;
+        private final boolean active;
+        private final double ratio;
+        private final String name;
+
+        Dto(long id, long version, int count, int quantity, boolean active, double ratio, String name) {
+            this.id = id;
+            this.version = version;
+            this.count = count;
+            this.quantity = quantity;
+            this.active = active;
+            this.ratio = ratio;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.alphawang.diff.benchmark;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.ObjectDiff;
+import com.alphawang.diff.ObjectDiffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency percentiles of {@link ObjectDiffer#diff} over the {@link Shapes}, equal or heavily different.
+ * The differ is built once, so only the diff is measured. Add {@code -prof gc} for the allocation rate.
+ * <pre>
+ * ./gradlew jmh -PjmhArgs='ObjectDiffBenchmark -p shape=keyedList -prof gc'
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectDiffBenchmark {
+
+    private static final int IGNORE_PATHS = 50;
+
+    @Param({"widePojo", "deepNesting", "list", "keyedList", "map", "primitiveArray", "ignorePaths"})
+    private String shape;
+
+    @Param({"equal", "different"})
+    private String variant;
+
+    @Param({"10000"})
+    private int size;
+
+    private ObjectDiffer differ;
+    private Object left;
+    private Object right;
+
+    @Setup
+    public void setup() {
+        ObjectDiff config = ObjectDiff.newInstance();
+        if ("keyedList".equals(shape)) {
+            config.addCollectionItemKeyFunction(Shapes.Line.class, line -> ((Shapes.Line) line).lineId);
+        } else if ("ignorePaths".equals(shape)) {
+            config.withIgnorePaths(ignorePaths()).withIgnoreGlobs(ignoreGlobs());
+        }
+        int scaledSize = "primitiveArray".equals(shape) ? size * 100 : size;
+        differ = config.toDiffer();
+        left = Shapes.build(shape, scaledSize, false);
+        right = Shapes.build(shape, scaledSize, "different".equals(variant));
+    }
+
+    @Benchmark
+    public DiffResult diff() {
+        return differ.diff(left, right);
+    }
+
+    /**
+     * Regexes of which only the last matches, as in a configuration grown over time.
+     */
+    private static List<String> ignorePaths() {
+        List<String> paths = new ArrayList<>(IGNORE_PATHS);
+        for (int i = 0; i < IGNORE_PATHS - 1; i++) {
+            paths.add("/lines/\\d+/field" + i);
+        }
+        paths.add("/lines/\\d+/detail/note");
+        return paths;
+    }
+
+    private static List<String> ignoreGlobs() {
+        List<String> globs = new ArrayList<>(IGNORE_PATHS);
+        for (int i = 0; i < IGNORE_PATHS - 1; i++) {
+            globs.add("/lines/*/glob" + i + "/**");
+        }
+        globs.add("/lines/*/createdAt");
+        return globs;
+    }
+}
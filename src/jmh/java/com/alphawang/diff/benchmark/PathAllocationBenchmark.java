@@ -0,0 +1,83 @@
+package com.alphawang.diff.benchmark;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.ObjectDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wide, mostly equal graph where almost no path ends up in a difference.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathAllocationBenchmark {
+
+    @Param({"1000"})
+    private int size;
+
+    private ObjectDiff objectDiff;
+
+    @Setup
+    public void setup() {
+        Order left = order(size);
+        Order right = order(size);
+        right.lines.get(size / 2).detail.note = "changed";
+        objectDiff = ObjectDiff.newInstance().withLeft(left).withRight(right);
+    }
+
+    @Benchmark
+    public DiffResult diffMostlyEqual() {
+        return objectDiff.diff();
+    }
+
+    private static Order order(int size) {
+        Date date = new Date(0L);
+        Order order = new Order();
+        order.lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Line line = new Line();
+            line.lineId = i;
+            line.createdAt = new Date(date.getTime());
+            line.detail = new Detail();
+            line.detail.note = "note" + i;
+            line.detail.tags = new ArrayList<>();
+            line.detail.tags.add(new Date(date.getTime()));
+            order.lines.add(line);
+        }
+        return order;
+    }
+
+    static class Order {
+        private List<Line> lines;
+    }
+
+    static class Line {
+        private long lineId;
+        private Date createdAt;
+        private Detail detail;
+    }
+
+    static class Detail {
+        private String note;
+        private List<Object> tags;
+    }
+}
@@ -0,0 +1,147 @@
+package com.alphawang.diff.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Object graphs of the shapes met in practice, built twice so that left and right never share instances.
+ * None of the classes override equals, so the diff always walks the whole graph.
+ * With different, every leaf of the graph (or every tenth element of an array) differs between left and right.
+ */
+final class Shapes {
+
+    private Shapes() { }
+
+    static Object build(String shape, int size, boolean different) {
+        switch (shape) {
+            case "widePojo":
+                return widePojos(size, different);
+            case "deepNesting":
+                return deepNesting(size, different);
+            case "list":
+            case "keyedList":
+            case "ignorePaths":
+                return order(size, different);
+            case "map":
+                return orderMap(size, different);
+            case "primitiveArray":
+                return samples(size, different);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    static List<Wide> widePojos(int size, boolean different) {
+        List<Wide> pojos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            pojos.add(new Wide(different ? i + 1 : i));
+        }
+        return pojos;
+    }
+
+    static Nested deepNesting(int depth, boolean different) {
+        Nested nested = null;
+        for (int i = 0; i < depth; i++) {
+            nested = new Nested(different ? "level" + i + "'" : "level" + i, nested);
+        }
+        return nested;
+    }
+
+    static Order order(int size, boolean different) {
+        Order order = new Order();
+        order.orderId = 1L;
+        order.lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            order.lines.add(line(i, different));
+        }
+        return order;
+    }
+
+    static Map<Long, Line> orderMap(int size, boolean different) {
+        Map<Long, Line> lines = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            lines.put((long) i, line(i, different));
+        }
+        return lines;
+    }
+
+    static Samples samples(int size, boolean different) {
+        Samples samples = new Samples();
+        samples.values = new long[size];
+        samples.weights = new double[size];
+        for (int i = 0; i < size; i++) {
+            samples.values[i] = different && i % 10 == 0 ? -i : i;
+            samples.weights[i] = i * 0.5d;
+        }
+        return samples;
+    }
+
+    private static Line line(int i, boolean different) {
+        Line line = new Line();
+        line.lineId = i;
+        line.name = different ? "changed" + i : "line" + i;
+        line.quantity = different ? i + 1 : i;
+        line.createdAt = new Date(1_500_000_000_000L + i);
+        line.detail = new Detail();
+        line.detail.note = "note" + i;
+        line.detail.tags = new ArrayList<>();
+        line.detail.tags.add("tag" + i % 7);
+        return line;
+    }
+
+    static class Order {
+        long orderId;
+        List<Line> lines;
+    }
+
+    static class Line {
+        long lineId;
+        String name;
+        int quantity;
+        Date createdAt;
+        Detail detail;
+    }
+
+    static class Detail {
+        String note;
+        List<String> tags;
+    }
+
+    static class Nested {
+        final String name;
+        final Nested child;
+
+        Nested(String name, Nested child) {
+            this.name = name;
+            this.child = child;
+        }
+    }
+
+    static class Samples {
+        long[] values;
+        double[] weights;
+    }
+
+    /**
+     * 32 fields of the common simple types.
+     */
+    static class Wide {
+        long l0, l1, l2, l3, l4, l5, l6, l7;
+        int i0, i1, i2, i3, i4, i5, i6, i7;
+        String s0, s1, s2, s3, s4, s5, s6, s7;
+        double d0, d1, d2, d3;
+        Date t0, t1, t2, t3;
+
+        Wide(int seed) {
+            l0 = seed; l1 = seed + 1; l2 = seed + 2; l3 = seed + 3; l4 = seed + 4; l5 = seed + 5; l6 = seed + 6; l7 = seed + 7;
+            i0 = seed; i1 = seed + 1; i2 = seed + 2; i3 = seed + 3; i4 = seed + 4; i5 = seed + 5; i6 = seed + 6; i7 = seed + 7;
+            s0 = "s0-" + seed; s1 = "s1-" + seed; s2 = "s2-" + seed; s3 = "s3-" + seed;
+            s4 = "s4-" + seed; s5 = "s5-" + seed; s6 = "s6-" + seed; s7 = "s7-" + seed;
+            d0 = seed * 0.1d; d1 = seed * 0.2d; d2 = seed * 0.3d; d3 = seed * 0.4d;
+            t0 = new Date(seed); t1 = new Date(seed + 1L); t2 = new Date(seed + 2L); t3 = new Date(seed + 3L);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+
+import java.lang.reflect.Array;
+
+/**
+ * Items of two arrays of the same length, by index.
+ */
+final class ArrayFrame extends DiffFrame {
+    private final DiffTraversal traversal;
+    private final DiffPath path;
+    private final State ignoreState;
+    private final Object left;
+    private final Object right;
+    private final int length;
+    private int index;
+
+    ArrayFrame(DiffTraversal traversal, DiffPath path, State ignoreState, Object left, Object right, int length) {
+        this.traversal = traversal;
+        this.path = path;
+        this.ignoreState = ignoreState;
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    @Override
+    boolean hasNext() {
+        return index < length;
+    }
+
+    @Override
+    void next() {
+        int i = index++;
+        traversal.visitIndex(path, ignoreState, i, Array.get(left, i), Array.get(right, i));
+    }
+}
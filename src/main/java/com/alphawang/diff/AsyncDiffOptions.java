@@ -0,0 +1,81 @@
+package com.alphawang.diff;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Limits of a {@link DiffExecutor}, so that asynchronous diffs take bounded threads, memory and time whatever the load.
+ */
+@Getter
+public class AsyncDiffOptions {
+
+    private static final AsyncDiffOptions DEFAULTS = new AsyncDiffOptions(
+        Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 256, OverloadPolicy.DROP, 10, Duration.ofSeconds(1), true);
+
+    /**
+     * Diffs running at the same time, by default half of the processors.
+     */
+    private final int maxConcurrency;
+    /**
+     * Diffs waiting for one of the running ones to finish, the others are handled by the overload policy.
+     */
+    private final int queueDepth;
+    private final OverloadPolicy overloadPolicy;
+    /**
+     * With {@link OverloadPolicy#SAMPLE}, one diff out of sampleRate is taken while the queue is half full.
+     */
+    private final int sampleRate;
+    /**
+     * From the submission of a diff, queueing included.
+     */
+    private final Duration timeout;
+    /**
+     * Run each diff on its own virtual thread when the JDK has them, else on a pool of maxConcurrency platform threads.
+     */
+    private final boolean virtualThreads;
+
+    private AsyncDiffOptions(int maxConcurrency, int queueDepth, OverloadPolicy overloadPolicy, int sampleRate, Duration timeout,
+                             boolean virtualThreads) {
+        this.maxConcurrency = maxConcurrency;
+        this.queueDepth = queueDepth;
+        this.overloadPolicy = overloadPolicy;
+        this.sampleRate = sampleRate;
+        this.timeout = timeout;
+        this.virtualThreads = virtualThreads;
+    }
+
+    public static AsyncDiffOptions defaults() {
+        return DEFAULTS;
+    }
+
+    public AsyncDiffOptions withMaxConcurrency(int maxConcurrency) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive");
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+
+    public AsyncDiffOptions withQueueDepth(int queueDepth) {
+        Preconditions.checkArgument(queueDepth >= 0, "queueDepth must not be negative");
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+
+    public AsyncDiffOptions withOverloadPolicy(OverloadPolicy overloadPolicy) {
+        Preconditions.checkNotNull(overloadPolicy, "overloadPolicy");
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+
+    public AsyncDiffOptions withSampleRate(int sampleRate) {
+        Preconditions.checkArgument(sampleRate > 0, "sampleRate must be positive");
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+
+    public AsyncDiffOptions withTimeout(Duration timeout) {
+        Preconditions.checkArgument(!timeout.isNegative() && !timeout.isZero(), "timeout must be positive");
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+
+    public AsyncDiffOptions withVirtualThreads(boolean virtualThreads) {
+        return new AsyncDiffOptions(maxConcurrency, queueDepth, overloadPolicy, sampleRate, timeout, virtualThreads);
+    }
+}
@@ -0,0 +1,91 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.util.IdentityPairSet;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Diff children [from, to) in ranges of at most threshold children, each into its own buffer with its own traversal,
+ * so no listener is called from two threads. A buffer stops its range once it holds as many differences as the listener can take.
+ * Each range starts from the pairs visited before the parallel diff and keeps the pairs it visits to itself,
+ * and the parallel diff of {@link DiffTraversal} resolves the pairs visited by several ranges in index order.
+ */
+@Slf4j
+final class ChildrenDiffTask extends RecursiveTask<List<ChildrenDiffTask.Range>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient DiffTraversal parent;
+    private final transient IdentityPairSet visited;
+    private final transient ChildDiff childDiff;
+    private final int threshold;
+    private final int capacity;
+    private final int from;
+    private final int to;
+
+    ChildrenDiffTask(DiffTraversal parent, IdentityPairSet visited, ChildDiff childDiff, int threshold, int capacity, int from, int to) {
+        this.parent = parent;
+        this.visited = visited;
+        this.childDiff = childDiff;
+        this.threshold = threshold;
+        this.capacity = capacity;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected List<Range> compute() {
+        if (to - from <= threshold) {
+            Range range = new Range(from, to, new DifferenceBuffer(capacity), visited.child());
+            try (DiffTraversal traversal = parent.forRange(range.getBuffer(), range.getVisited())) {
+                for (int i = from; i < to; i++) {
+                    childDiff.visit(traversal, i);
+                    traversal.drain();
+                }
+            } catch (DifferenceLimitReached e) {
+                log.trace("Buffer of [{}, {}) is full", from, to);
+            }
+            return Collections.singletonList(range);
+        }
+
+        int middle = (from + to) >>> 1;
+        ChildrenDiffTask head = new ChildrenDiffTask(parent, visited, childDiff, threshold, capacity, from, middle);
+        ChildrenDiffTask tail = new ChildrenDiffTask(parent, visited, childDiff, threshold, capacity, middle, to);
+        head.fork();
+        List<Range> tailRanges = tail.compute();
+        List<Range> ranges = new ArrayList<>(head.join());
+        ranges.addAll(tailRanges);
+        return ranges;
+    }
+
+    /**
+     * Diff of the child at index, pushed to the traversal of its range.
+     */
+    @FunctionalInterface
+    interface ChildDiff {
+        void visit(DiffTraversal traversal, int index);
+    }
+
+    /**
+     * Differences of the children [from, to), and the pairs visited to find them.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    static final class Range {
+        private final int from;
+        private final int to;
+        private final DifferenceBuffer buffer;
+        private final IdentityPairSet visited;
+
+        Range(int from, int to, DifferenceBuffer buffer, IdentityPairSet visited) {
+            this.from = from;
+            this.to = to;
+            this.buffer = buffer;
+            this.visited = visited;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.alphawang.diff;
+
+/**
+ * How collection items without a collection item key function are paired.
+ */
+public enum CollectionDiffMode {
+    /**
+     * Compare items index by index, collections of different sizes are one SIZE_NOT_SAME difference.
+     */
+    BY_INDEX,
+    /**
+     * Ignore the order: pair items that are equal by equals/hashCode, duplicates included.
+     * Only the items left unpaired are reported, as REMOVED at their left index and ADDED at +their right index.
+     * Items without value equality never pair with a different instance, give them a key function instead.
+     */
+    UNORDERED,
+    /**
+     * Keep the order: a minimal edit script (Myers' diff) of inserted, deleted and modified items, by equals/hashCode.
+     * Inserted items are ADDED at +their right index, deleted items REMOVED at their left index,
+     * and an item replaced in place is diffed against its replacement at its left index.
+     */
+    SEQUENCE,
+    ;
+}
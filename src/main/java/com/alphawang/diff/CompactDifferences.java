@@ -0,0 +1,124 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.util.PathTrie;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Differences of a {@link DiffResult} by path, stored column-wise: paths in a {@link PathTrie},
+ * types as bytes, and summaries and values in parallel arrays. {@link Difference}s are only created when read.
+ * Like a LinkedHashMap, it keeps the order in which the paths were first put.
+ */
+final class CompactDifferences extends AbstractMap<String, Difference> {
+
+    private static final Difference.DifferenceType[] TYPES = Difference.DifferenceType.values();
+
+    private final PathTrie paths = new PathTrie();
+    private int[] pathIds = new int[16];
+    private byte[] types = new byte[16];
+    private String[] summaries = new String[16];
+    private Object[] leftValues = new Object[16];
+    private Object[] rightValues = new Object[16];
+    /**
+     * Index of the difference + 1 by path id, 0 if there is none at the path.
+     */
+    private int[] indexes = new int[16];
+    private int size;
+
+    @Override
+    public Difference put(String path, Difference difference) {
+        int pathId = paths.intern(path);
+        if (pathId >= indexes.length) {
+            indexes = Arrays.copyOf(indexes, Math.max(indexes.length * 2, pathId + 1));
+        }
+
+        int index = indexes[pathId] - 1;
+        Difference previous = index < 0 ? null : difference(index);
+        if (index < 0) {
+            index = size++;
+            if (index == pathIds.length) {
+                grow();
+            }
+            pathIds[index] = pathId;
+            indexes[pathId] = index + 1;
+        }
+        types[index] = (byte) difference.getType().ordinal();
+        summaries[index] = difference.getSummary();
+        leftValues[index] = difference.heldLeftValue();
+        rightValues[index] = difference.heldRightValue();
+        return previous;
+    }
+
+    @Override
+    public Difference get(Object path) {
+        int index = indexOf(path);
+        return index < 0 ? null : difference(index);
+    }
+
+    @Override
+    public boolean containsKey(Object path) {
+        return indexOf(path) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Difference>> entrySet() {
+        return new AbstractSet<Entry<String, Difference>>() {
+            @Override
+            public Iterator<Entry<String, Difference>> iterator() {
+                return new Iterator<Entry<String, Difference>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, Difference> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Difference difference = difference(next++);
+                        return new SimpleImmutableEntry<>(difference.getPath(), difference);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(Object path) {
+        if (!(path instanceof String)) {
+            return -1;
+        }
+        int pathId = paths.find((String) path);
+        return pathId < 0 || pathId >= indexes.length ? -1 : indexes[pathId] - 1;
+    }
+
+    private Difference difference(int index) {
+        return Difference.of(paths.path(pathIds[index]), TYPES[types[index]], summaries[index], leftValues[index], rightValues[index]);
+    }
+
+    private void grow() {
+        int capacity = pathIds.length * 2;
+        pathIds = Arrays.copyOf(pathIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        summaries = Arrays.copyOf(summaries, capacity);
+        leftValues = Arrays.copyOf(leftValues, capacity);
+        rightValues = Arrays.copyOf(rightValues, capacity);
+    }
+}
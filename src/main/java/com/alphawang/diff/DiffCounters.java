@@ -0,0 +1,64 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.util.ThreadAllocation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one diff, shared by the traversals of its parallel tasks. Only created when metrics are on.
+ */
+final class DiffCounters {
+
+    private final LongAdder[] visits = new LongAdder[ValueType.Kind.values().length];
+    private final LongAdder ignoredPaths = new LongAdder();
+    private final LongAdder keyFunctionFallbacks = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final long startNanos;
+    private final long startAllocatedBytes;
+
+    DiffCounters() {
+        for (int i = 0; i < visits.length; i++) {
+            visits[i] = new LongAdder();
+        }
+        this.startAllocatedBytes = ThreadAllocation.allocatedBytes();
+        this.startNanos = System.nanoTime();
+    }
+
+    void visit(ValueType.Kind kind) {
+        visits[kind.ordinal()].increment();
+    }
+
+    void ignoredPath() {
+        ignoredPaths.increment();
+    }
+
+    void keyFunctionFallback() {
+        keyFunctionFallbacks.increment();
+    }
+
+    void depth(int depth) {
+        maxDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    DiffMetrics toMetrics() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = startAllocatedBytes < 0 ? -1 : ThreadAllocation.allocatedBytes() - startAllocatedBytes;
+        return DiffMetrics.of(
+            visits(ValueType.Kind.OBJECT),
+            visits(ValueType.Kind.MAP),
+            visits(ValueType.Kind.COLLECTION),
+            visits(ValueType.Kind.ARRAY),
+            visits(ValueType.Kind.SIMPLE),
+            visits(ValueType.Kind.COMPARABLE),
+            ignoredPaths.sum(),
+            keyFunctionFallbacks.sum(),
+            maxDepth.get(),
+            elapsedNanos,
+            allocatedBytes);
+    }
+
+    private long visits(ValueType.Kind kind) {
+        return visits[kind.ordinal()].sum();
+    }
+}
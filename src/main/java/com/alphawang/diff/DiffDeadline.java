@@ -0,0 +1,54 @@
+package com.alphawang.diff;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When an asynchronous diff has to stop: at its timeout, or as soon as its future is cancelled.
+ * Every loop of the diff calls {@link #step()}, which reads the clock every few hundred steps
+ * and then stops the diff as if the difference limit was reached.
+ */
+final class DiffDeadline {
+
+    private static final int CHECK_MASK = 0xFF;
+
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+    /**
+     * Only samples the clock, the steps of parallel tasks may be lost.
+     */
+    private int steps;
+
+    private DiffDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    static DiffDeadline after(long timeout, TimeUnit unit) {
+        return new DiffDeadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isReached() {
+        return cancelled || System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @throws DifferenceLimitReached if the deadline is reached
+     */
+    void step() {
+        if ((++steps & CHECK_MASK) == 0 && isReached()) {
+            throw DifferenceLimitReached.INSTANCE;
+        }
+    }
+
+    /**
+     * {@link #step()} of a deadline that may be null, for the diffs without one.
+     */
+    static void step(DiffDeadline deadline) {
+        if (deadline != null) {
+            deadline.step();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.util.VirtualThreads;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs the diffs of {@link ObjectDiffer#diffAsync} with bounded concurrency, queue and time, see {@link AsyncDiffOptions}.
+ * Submitting never blocks: a diff the executor cannot take fails its future at once, and one that is not done
+ * at its timeout fails with a TimeoutException and stops. Futures complete on the executor threads or on its timer,
+ * so callbacks that do more than record the result should use the async variants of CompletableFuture.
+ * <p>
+ * Each diff runs on its own virtual thread when the JDK has them, at most maxConcurrency at a time,
+ * else on a pool of maxConcurrency daemon platform threads.
+ */
+@Slf4j
+public final class DiffExecutor implements AutoCloseable {
+
+    private static final String THREAD_NAME_PREFIX = "object-diff-";
+
+    private final AsyncDiffOptions options;
+    private final long timeoutNanos;
+    private final Executor executor;
+    /**
+     * Null with virtual threads.
+     */
+    private final ExecutorService pool;
+    /**
+     * Bounds the running virtual threads, null with a pool.
+     */
+    private final Semaphore running;
+    private final ScheduledThreadPoolExecutor timer;
+    /**
+     * Diffs taken and not finished yet, running or queued.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong overloaded = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private volatile boolean closed;
+
+    private DiffExecutor(AsyncDiffOptions options) {
+        this.options = options;
+        this.timeoutNanos = options.getTimeout().toNanos();
+        ThreadFactory virtualThreads = options.isVirtualThreads() ? VirtualThreads.factory(THREAD_NAME_PREFIX) : null;
+        if (virtualThreads != null) {
+            this.pool = null;
+            this.running = new Semaphore(options.getMaxConcurrency());
+            this.executor = command -> virtualThreads.newThread(command).start();
+        } else {
+            // the queue is bounded by the admission of the diffs
+            this.pool = new ThreadPoolExecutor(options.getMaxConcurrency(), options.getMaxConcurrency(), 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_PREFIX + "%d").setDaemon(true).build());
+            this.running = null;
+            this.executor = pool;
+        }
+        this.timer = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setNameFormat(THREAD_NAME_PREFIX + "timer-%d").setDaemon(true).build());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static DiffExecutor create() {
+        return create(AsyncDiffOptions.defaults());
+    }
+
+    public static DiffExecutor create(AsyncDiffOptions options) {
+        return new DiffExecutor(options);
+    }
+
+    /**
+     * Whether diffs run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return pool == null;
+    }
+
+    /**
+     * Diffs taken and waiting for a running one to finish.
+     */
+    public int getQueued() {
+        return Math.max(0, pending.get() - options.getMaxConcurrency());
+    }
+
+    /**
+     * Diffs dropped by the overload policy, or after close.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    CompletableFuture<DiffResult> submit(Function<DiffDeadline, DiffResult> diff) {
+        CompletableFuture<DiffResult> future = new CompletableFuture<>();
+        if (!admit()) {
+            dropped.increment();
+            future.completeExceptionally(new RejectedExecutionException(closed ? "Diff executor is closed" : "Diff executor is overloaded"));
+            return future;
+        }
+
+        DiffDeadline deadline = DiffDeadline.after(timeoutNanos, TimeUnit.NANOSECONDS);
+        try {
+            ScheduledFuture<?> timeout = timer.schedule(() -> timeOut(future), timeoutNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((result, e) -> {
+                deadline.cancel();
+                timeout.cancel(false);
+            });
+            executor.execute(() -> run(diff, deadline, future));
+        } catch (RejectedExecutionException e) {
+            // closed meanwhile
+            pending.decrementAndGet();
+            dropped.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Diffs already taken still run, or time out, new ones are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (pool != null) {
+            pool.shutdown();
+        }
+        // delayed timeouts still fire after shutdown
+        timer.shutdown();
+    }
+
+    private boolean admit() {
+        int maxConcurrency = options.getMaxConcurrency();
+        int queueDepth = options.getQueueDepth();
+        if (options.getOverloadPolicy() == OverloadPolicy.SAMPLE && queueDepth > 0
+            && (pending.get() - maxConcurrency) * 2 >= queueDepth
+            && overloaded.getAndIncrement() % options.getSampleRate() != 0) {
+            return false;
+        }
+        while (true) {
+            int current = pending.get();
+            if (closed || current >= maxConcurrency + queueDepth) {
+                return false;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void timeOut(CompletableFuture<DiffResult> future) {
+        // counted first, so that it is up to date once the future fails
+        timedOut.increment();
+        if (!future.completeExceptionally(new TimeoutException("Diff not done in " + options.getTimeout()))) {
+            timedOut.decrement();
+        }
+    }
+
+    private void run(Function<DiffDeadline, DiffResult> diff, DiffDeadline deadline, CompletableFuture<DiffResult> future) {
+        try {
+            if (running != null) {
+                running.acquire();
+            }
+            try {
+                // skip the diffs that timed out or were cancelled while queued
+                if (!future.isDone()) {
+                    DiffResult result = diff.apply(deadline);
+                    // a diff stopped by its deadline is truncated, even if it ends before the timer fires
+                    if (deadline.isReached()) {
+                        timeOut(future);
+                    } else {
+                        future.complete(result);
+                    }
+                }
+            } finally {
+                if (running != null) {
+                    running.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (Throwable e) {
+            log.error("Async diff ERROR.", e);
+            future.completeExceptionally(e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+}
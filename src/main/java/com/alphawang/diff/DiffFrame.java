@@ -0,0 +1,34 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+
+/**
+ * Children of a pair being diffed by a {@link DiffTraversal}, one per step.
+ */
+abstract class DiffFrame {
+    private DiffPath profiledPath;
+    private long profiledSince;
+
+    /**
+     * The time of path runs until this frame is popped.
+     */
+    void profile(DiffPath path, long since) {
+        this.profiledPath = path;
+        this.profiledSince = since;
+    }
+
+    /**
+     * @return the profiled path, or null unless profiling is on
+     */
+    DiffPath getProfiledPath() {
+        return profiledPath;
+    }
+
+    long getProfiledSince() {
+        return profiledSince;
+    }
+
+    abstract boolean hasNext();
+
+    abstract void next();
+}
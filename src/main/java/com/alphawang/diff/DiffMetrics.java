@@ -0,0 +1,46 @@
+package com.alphawang.diff;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * What one diff did, collected when {@link ObjectDiff#withMetrics} is set.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(staticName = "of")
+public class DiffMetrics {
+    /**
+     * Nodes visited per kind of value: objects walked field by field, maps, collections, arrays,
+     * simple values and other comparable values.
+     */
+    private final long objects;
+    private final long maps;
+    private final long collections;
+    private final long arrays;
+    private final long simples;
+    private final long comparables;
+    /**
+     * Paths skipped because they matched an ignore path or glob.
+     */
+    private final long ignoredPaths;
+    /**
+     * Collections diffed without their key function, because it could not index them.
+     */
+    private final long keyFunctionFallbacks;
+    /**
+     * Deepest stack of objects, maps, collections and arrays being walked at the same time.
+     */
+    private final int maxDepth;
+    private final long elapsedNanos;
+    /**
+     * Bytes allocated by the diffing thread, or -1 where the JVM cannot tell.
+     * Allocations of parallel tasks run by other threads are not included.
+     */
+    private final long allocatedBytes;
+
+    public long getVisitedNodes() {
+        return objects + maps + collections + arrays + simples + comparables;
+    }
+}
@@ -0,0 +1,15 @@
+package com.alphawang.diff;
+
+/**
+ * Receives the {@link DiffMetrics} of each diff once it is done, e.g. to publish them to a metrics registry.
+ */
+@FunctionalInterface
+public interface DiffMetricsListener {
+
+    /**
+     * Collect metrics without publishing them, they are only attached to the {@link DiffResult}.
+     */
+    DiffMetricsListener NONE = metrics -> { };
+
+    void onMetrics(DiffMetrics metrics);
+}
@@ -0,0 +1,23 @@
+package com.alphawang.diff;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * One left/right pair of {@link ObjectDiffer#diffAll}.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor(staticName = "of")
+public class DiffPair {
+    private final Map identities;
+    private final Object left;
+    private final Object right;
+
+    public static DiffPair of(Object left, Object right) {
+        return of(null, left, right);
+    }
+}
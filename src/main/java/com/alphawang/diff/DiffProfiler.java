@@ -0,0 +1,84 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.PathTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Attributes the cost of diffs to path templates, where collection indices and map keys are replaced by *,
+ * see {@link DiffPath#toTemplate()}. Set it with {@link ObjectDiff#withProfiler}, it accumulates over all diffs
+ * of the differ and is safe to share between threads.
+ * Profiling times every visited path, so it is meant to find what to ignore or key, not to stay on.
+ */
+public class DiffProfiler {
+
+    private volatile Templates templates = new Templates();
+
+    /**
+     * @return the n templates with the most time, most expensive first, without the root which holds the time of whole diffs
+     */
+    public List<PathProfile> top(int n) {
+        return templates.counters.entrySet().stream()
+            .filter(entry -> !entry.getKey().isRoot())
+            .map(entry -> entry.getValue().toProfile(entry.getKey().toString()))
+            .sorted(Comparator.comparingLong(PathProfile::getNanos).reversed())
+            .limit(n)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Drop the counters and the templates interned for them.
+     */
+    public void reset() {
+        templates = new Templates();
+    }
+
+    void record(DiffPath path, long nanos) {
+        Counters counters = counters(path);
+        counters.visits.increment();
+        counters.nanos.add(nanos);
+    }
+
+    void recordDifference(DiffPath path) {
+        counters(path).differences.increment();
+    }
+
+    private Counters counters(DiffPath path) {
+        Templates current = templates;
+        PathTemplate template = path.getTemplate(current.tree);
+        Counters counters = current.counters.get(template);
+        if (counters == null) {
+            Counters created = new Counters();
+            counters = current.counters.putIfAbsent(template, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        return counters;
+    }
+
+    /**
+     * Counters by template interned in a tree of this profiler, so recording a path allocates nothing once its template is known.
+     * Replaced as a whole on reset.
+     */
+    private static final class Templates {
+        private final PathTemplate tree = PathTemplate.newTree();
+        private final ConcurrentMap<PathTemplate, Counters> counters = new ConcurrentHashMap<>();
+    }
+
+    private static final class Counters {
+        private final LongAdder visits = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder differences = new LongAdder();
+
+        PathProfile toProfile(String template) {
+            return PathProfile.of(template, visits.sum(), nanos.sum(), differences.sum());
+        }
+    }
+}
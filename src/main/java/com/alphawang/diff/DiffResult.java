@@ -1,5 +1,6 @@
 package com.alphawang.diff;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
@@ -8,17 +9,47 @@ import java.util.Map;
 
 @Getter
 @ToString
-public class DiffResult {
+public class DiffResult implements DifferenceListener {
     
     private final Map identities;
     private final Object left;
     private final Object right;
-    private final Map<String, Difference> differences = new LinkedHashMap<>();
+    private final Map<String, Difference> differences;
+    /**
+     * The diff stopped at maxDifferences, there are more differences than these.
+     */
+    private boolean truncated;
+    /**
+     * What the diff did, only with {@link ObjectDiff#withMetrics}.
+     */
+    private DiffMetrics metrics;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final ValueRetention valueRetention;
     
     public DiffResult(Map identities, Object left, Object right) {
+        this(identities, left, right, ValueRetention.FULL);
+    }
+
+    /**
+     * @param left null not to retain the left root, e.g. for results kept in long-lived queues
+     * @param right null not to retain the right root
+     * @param valueRetention what is kept of the values of the added differences
+     */
+    public DiffResult(Map identities, Object left, Object right, ValueRetention valueRetention) {
+        this(identities, left, right, valueRetention, false);
+    }
+
+    /**
+     * @param compact store the differences column-wise with shared path prefixes, for results of millions of differences.
+     *                {@link #getDifferences()} is then a read-only view that creates each Difference when it is read.
+     */
+    public DiffResult(Map identities, Object left, Object right, ValueRetention valueRetention, boolean compact) {
         this.identities = identities;
         this.left = left;
         this.right = right;
+        this.valueRetention = valueRetention;
+        this.differences = compact ? new CompactDifferences() : new LinkedHashMap<>();
     }
 
     public boolean hasDifference() {
@@ -29,6 +60,22 @@ public class DiffResult {
         if (difference == null) {
             return;
         }
-        differences.put(difference.getPath(), difference);
+        differences.put(difference.getPath(), valueRetention.retain(difference));
+    }
+
+    /**
+     * Mark that there are more differences than these, e.g. when a truncated result is read back.
+     */
+    public void markTruncated() {
+        this.truncated = true;
+    }
+
+    void setMetrics(DiffMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onDifference(Difference difference) {
+        add(difference);
     }
 }
@@ -0,0 +1,248 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.Difference.DifferenceType;
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+import com.alphawang.diff.util.MyersDiff;
+import com.alphawang.diff.util.PrimitiveArrays;
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.alphawang.diff.Difference.DifferenceType.ADDED;
+import static com.alphawang.diff.Difference.DifferenceType.ADDED_KEY;
+import static com.alphawang.diff.Difference.DifferenceType.RANGE_NOT_EQUALS;
+import static com.alphawang.diff.Difference.DifferenceType.REMOVED;
+import static com.alphawang.diff.Difference.DifferenceType.REMOVED_KEY;
+import static com.alphawang.diff.Difference.DifferenceType.VALUE_NOT_EQUALS;
+
+/**
+ * How differences of maps, collections and arrays are paired and reported, shared by {@link DiffTraversal}
+ * and {@link SnapshotDiff} so that a diff against a snapshot reports what a diff against the objects would.
+ */
+final class DiffRules {
+
+    static final String ADDED_SEGMENT_PREFIX = "+";
+    static final String RANGE_SEGMENT_SEPARATOR = "..";
+
+    private DiffRules() { }
+
+    /**
+     * Where the differences go, e.g. to the listener of the diff.
+     */
+    @FunctionalInterface
+    interface Reporter {
+        void report(DiffPath path, DifferenceType type, String summary, Object left, Object right);
+    }
+
+    /**
+     * Steps of a {@link SequenceWalk}.
+     */
+    interface SequenceVisitor {
+        /**
+         * The items are in the same hunk, diff them against each other.
+         */
+        void pair(int leftIndex, int rightIndex);
+
+        void removed(int leftIndex);
+
+        void added(int rightIndex);
+    }
+
+    /**
+     * Summary of SIZE_NOT_SAME.
+     */
+    static String sizeSummary(int leftSize, int rightSize) {
+        return leftSize + " : " + rightSize;
+    }
+
+    static void reportRemovedKey(DiffPath entryPath, State entryIgnoreState, Object leftValue, Reporter reporter) {
+        if (!entryIgnoreState.isIgnored()) {
+            reporter.report(entryPath, REMOVED_KEY, null, leftValue, null);
+        }
+    }
+
+    static void reportAddedKey(IgnorePathMatcher ignoreMatcher, DiffPath path, State ignoreState, Object key, Object rightValue,
+                               Reporter reporter) {
+        DiffPath addedPath = path.key(key);
+        if (!ignoreMatcher.child(ignoreState, addedPath).isIgnored()) {
+            reporter.report(addedPath, ADDED_KEY, null, null, rightValue);
+        }
+    }
+
+    static void reportRemovedItem(IgnorePathMatcher ignoreMatcher, DiffPath path, State ignoreState, int leftIndex, Object leftItem,
+                                  Reporter reporter) {
+        DiffPath removedPath = path.child(leftIndex);
+        if (!ignoreMatcher.child(ignoreState, removedPath).isIgnored()) {
+            reporter.report(removedPath, REMOVED, null, leftItem, null);
+        }
+    }
+
+    static void reportAddedItem(IgnorePathMatcher ignoreMatcher, DiffPath path, State ignoreState, int rightIndex, Object rightItem,
+                                Reporter reporter) {
+        DiffPath addedPath = path.key(ADDED_SEGMENT_PREFIX + rightIndex);
+        if (!ignoreMatcher.child(ignoreState, addedPath).isIgnored()) {
+            reporter.report(addedPath, ADDED, null, null, rightItem);
+        }
+    }
+
+    /**
+     * Pair equal items through a hash index of the right items, then report the unpaired ones as REMOVED and ADDED.
+     */
+    static void diffUnordered(IgnorePathMatcher ignoreMatcher, DiffPath path, State ignoreState, Object[] leftItems, Object[] rightItems,
+                              DiffDeadline deadline, Reporter reporter) {
+        diffUnordered(ignoreMatcher, path, ignoreState, leftItems, rightItems, leftItems, rightItems, deadline, reporter);
+    }
+
+    /**
+     * @param leftKeys what the left items are paired by, e.g. the item keys of a {@link DiffSnapshot}
+     * @param leftItems what is reported of the left items
+     */
+    static void diffUnordered(IgnorePathMatcher ignoreMatcher, DiffPath path, State ignoreState, Object[] leftKeys, Object[] rightKeys,
+                              Object[] leftItems, Object[] rightItems, DiffDeadline deadline, Reporter reporter) {
+        Map<Object, IndexBucket> rightIndexes = Maps.newHashMapWithExpectedSize(rightKeys.length);
+        for (int j = 0; j < rightKeys.length; j++) {
+            DiffDeadline.step(deadline);
+            rightIndexes.computeIfAbsent(rightKeys[j], item -> new IndexBucket()).add(j);
+        }
+
+        boolean[] rightPaired = new boolean[rightKeys.length];
+        for (int i = 0; i < leftKeys.length; i++) {
+            DiffDeadline.step(deadline);
+            IndexBucket bucket = rightIndexes.get(leftKeys[i]);
+            int rightIndex = bucket == null ? -1 : bucket.poll();
+            if (rightIndex >= 0) {
+                rightPaired[rightIndex] = true;
+            } else {
+                reportRemovedItem(ignoreMatcher, path, ignoreState, i, leftItems[i], reporter);
+            }
+        }
+
+        for (int j = 0; j < rightItems.length; j++) {
+            if (!rightPaired[j]) {
+                reportAddedItem(ignoreMatcher, path, ignoreState, j, rightItems[j], reporter);
+            }
+        }
+    }
+
+    /**
+     * Myers' diff of the items by equals/hashCode.
+     * @return the index of the right item matched by each left item, or -1
+     */
+    static int[] matchSequence(Object[] leftItems, Object[] rightItems, DiffDeadline deadline) {
+        Map<Object, Integer> itemIds = Maps.newHashMapWithExpectedSize(leftItems.length);
+        int[] leftIds = new int[leftItems.length];
+        int[] rightIds = new int[rightItems.length];
+        for (int i = 0; i < leftItems.length; i++) {
+            DiffDeadline.step(deadline);
+            leftIds[i] = itemIds.computeIfAbsent(leftItems[i], item -> itemIds.size());
+        }
+        for (int j = 0; j < rightItems.length; j++) {
+            DiffDeadline.step(deadline);
+            rightIds[j] = itemIds.computeIfAbsent(rightItems[j], item -> itemIds.size());
+        }
+        return deadline == null ? MyersDiff.match(leftIds, rightIds) : MyersDiff.match(leftIds, rightIds, deadline::step);
+    }
+
+    /**
+     * Only the mismatching indices of primitive arrays of the same type are reported, and only their elements are boxed.
+     * With groupMismatches, a run of contiguous mismatches is reported once as RANGE_NOT_EQUALS at "first..last".
+     */
+    static void diffPrimitiveArray(IgnorePathMatcher ignoreMatcher, boolean groupMismatches, DiffPath path, State ignoreState,
+                                   Object left, Object right, DiffDeadline deadline, Reporter reporter) {
+        int from = PrimitiveArrays.mismatch(left, right, 0);
+        while (from >= 0) {
+            DiffDeadline.step(deadline);
+            int to = groupMismatches ? PrimitiveArrays.match(left, right, from + 1) : from + 1;
+            for (int i = from; i < to && !ignoreState.isDead(); i++) {
+                if (ignoreMatcher.child(ignoreState, path.child(i)).isIgnored()) {
+                    reportArrayMismatches(path, left, right, from, i, reporter);
+                    from = i + 1;
+                }
+            }
+            reportArrayMismatches(path, left, right, from, to, reporter);
+            from = PrimitiveArrays.mismatch(left, right, to);
+        }
+    }
+
+    private static void reportArrayMismatches(DiffPath path, Object left, Object right, int from, int to, Reporter reporter) {
+        if (to - from == 1) {
+            reporter.report(path.child(from), VALUE_NOT_EQUALS, null, Array.get(left, from), Array.get(right, from));
+        } else if (to > from) {
+            DiffPath rangePath = path.key(from + RANGE_SEGMENT_SEPARATOR + (to - 1));
+            reporter.report(rangePath, RANGE_NOT_EQUALS, String.valueOf(to - from),
+                PrimitiveArrays.copyOfRange(left, from, to), PrimitiveArrays.copyOfRange(right, from, to));
+        }
+    }
+
+    /**
+     * Walks the Myers matches one step at a time: matched items are skipped, and in each hunk between two matches the items are
+     * paired first, then the rest of the left ones are removed and the rest of the right ones added.
+     */
+    static final class SequenceWalk {
+        private final int leftLength;
+        private final int rightLength;
+        private final int[] leftMatches;
+        private int i;
+        private int j;
+        private int leftEnd;
+        private int rightEnd;
+
+        SequenceWalk(int leftLength, int rightLength, int[] leftMatches) {
+            this.leftLength = leftLength;
+            this.rightLength = rightLength;
+            this.leftMatches = leftMatches;
+        }
+
+        boolean hasNext() {
+            return i < leftLength || j < rightLength;
+        }
+
+        void next(SequenceVisitor visitor) {
+            if (i == leftEnd && j == rightEnd) {
+                if (i < leftLength && leftMatches[i] == j) {
+                    i++;
+                    j++;
+                    leftEnd = i;
+                    rightEnd = j;
+                    return;
+                }
+                while (leftEnd < leftLength && leftMatches[leftEnd] < 0) {
+                    leftEnd++;
+                }
+                rightEnd = leftEnd < leftLength ? leftMatches[leftEnd] : rightLength;
+            }
+
+            if (i < leftEnd && j < rightEnd) {
+                visitor.pair(i++, j++);
+            } else if (i < leftEnd) {
+                visitor.removed(i++);
+            } else if (j < rightEnd) {
+                visitor.added(j++);
+            }
+        }
+    }
+
+    /**
+     * Indexes of equal items, polled in order.
+     */
+    private static final class IndexBucket {
+        private int[] indexes = new int[1];
+        private int size;
+        private int next;
+
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+
+        int poll() {
+            return next < size ? indexes[next++] : -1;
+        }
+    }
+}
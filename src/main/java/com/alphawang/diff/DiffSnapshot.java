@@ -0,0 +1,354 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.ValueType.Kind;
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+import com.alphawang.diff.plan.FieldDiffPlan;
+import com.alphawang.diff.util.PrimitiveArrays;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.alphawang.diff.util.ReflectionUtils.getCollectionItemClass;
+
+/**
+ * Immutable capture of a left object graph, to diff newer versions against it with {@link ObjectDiffer#diff(DiffSnapshot, Object)}
+ * without holding the original objects.
+ * The graph is flattened into one node per path with the fingerprint of its subtree: simple and comparable values are copied,
+ * objects, collections, maps and arrays only keep their class, size and keys, and primitive arrays a copy.
+ * Immutable JDK values are kept as they are, dates are cloned and other values are copied through serialization,
+ * so a value that is neither is not supported. Map keys are kept as their path segment.
+ * An object met at several paths is captured once, and those paths share its node.
+ * In the UNORDERED and SEQUENCE collection modes, collections also keep one key per item to pair them like equals in the diff:
+ * the copy of a simple or comparable item, else its fingerprint.
+ * Paths ignored by the differ are not captured, so a snapshot is meant to be diffed by the differ that took it.
+ */
+@Slf4j
+public final class DiffSnapshot {
+
+    private final Map<String, Node> nodes;
+
+    private DiffSnapshot(Map<String, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Number of captured paths.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    Node get(String path) {
+        return nodes.get(path);
+    }
+
+    static DiffSnapshot of(ObjectDiffer differ, Object left) {
+        return new Capture(differ).run(left);
+    }
+
+    /**
+     * What is kept of the value at one path, or at all the paths of the same object.
+     */
+    @Getter(AccessLevel.PACKAGE)
+    static final class Node {
+        /**
+         * Path where the value was captured, its children are captured under it.
+         */
+        private final DiffPath path;
+        /**
+         * Null for a null value.
+         */
+        private final Kind kind;
+        private final long fingerprint;
+        /**
+         * Copy of a simple or comparable value or of a primitive array,
+         * or keys of the items of a collection in the UNORDERED and SEQUENCE modes, see {@link #itemKey}.
+         */
+        private final Object value;
+        private final Class<?> type;
+        /**
+         * Item class of a keyed collection.
+         */
+        private final Class<?> itemType;
+        private final int size;
+        /**
+         * Path segments of the entries of a map or of a keyed collection in the order of the items, else null.
+         */
+        private final ImmutableSet<String> keys;
+
+        Node(DiffPath path, Kind kind, long fingerprint, Object value, Class<?> type, Class<?> itemType, int size, ImmutableSet<String> keys) {
+            this.path = path;
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+            this.value = value;
+            this.type = type;
+            this.itemType = itemType;
+            this.size = size;
+            this.keys = keys;
+        }
+
+        /**
+         * Left value of a difference: the kept value, or a summary of what is not kept.
+         */
+        Object reportedValue() {
+            if (kind == null || isLeaf(kind) || kind == Kind.ARRAY && value != null) {
+                return value;
+            }
+            return ValueSummary.of(type, kind == Kind.OBJECT ? -1 : size);
+        }
+
+        /**
+         * Path of the node of the item at the index, under its key in a keyed collection.
+         */
+        DiffPath itemPath(int index) {
+            return keys == null ? path.child(index) : path.key(keys.asList().get(index));
+        }
+    }
+
+    /**
+     * What a collection item is paired by in the UNORDERED and SEQUENCE modes: simple and comparable values by equals,
+     * like in the diff, other values by their fingerprint.
+     */
+    static Object itemKey(ObjectDiffer differ, Fingerprinter fingerprinter, Object item) {
+        if (item == null || isLeaf(differ.getValueTypes().get(item.getClass()).getKind())) {
+            return item;
+        }
+        return new ItemFingerprint(fingerprinter.fingerprint(item));
+    }
+
+    private static boolean isLeaf(Kind kind) {
+        return kind == Kind.SIMPLE || kind == Kind.COMPARABLE;
+    }
+
+    /**
+     * Key of an item that is not a simple or comparable value.
+     */
+    private static final class ItemFingerprint {
+        private final long fingerprint;
+
+        ItemFingerprint(long fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ItemFingerprint && ((ItemFingerprint) o).fingerprint == fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(fingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + Long.toHexString(fingerprint);
+        }
+    }
+
+    /**
+     * Walks the left graph with an explicit stack, one node per path.
+     */
+    private static final class Capture {
+        private final ObjectDiffer differ;
+        private final IgnorePathMatcher ignoreMatcher;
+        private final Fingerprinter fingerprinter;
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private final Map<Object, Node> captured = new IdentityHashMap<>();
+        private final ArrayDeque<Pending> stack = new ArrayDeque<>();
+
+        Capture(ObjectDiffer differ) {
+            this.differ = differ;
+            this.ignoreMatcher = differ.getIgnoreMatcher();
+            this.fingerprinter = differ.fingerprinter();
+        }
+
+        DiffSnapshot run(Object left) {
+            stack.push(new Pending(DiffPath.ROOT, ignoreMatcher.root(), left));
+            while (!stack.isEmpty()) {
+                Pending pending = stack.pop();
+                if (!pending.getIgnoreState().isIgnored()) {
+                    nodes.put(pending.getPath().toString(), capture(pending.getPath(), pending.getIgnoreState(), pending.getValue()));
+                }
+            }
+            return new DiffSnapshot(ImmutableMap.copyOf(nodes));
+        }
+
+        private Node capture(DiffPath path, State ignoreState, Object value) {
+            if (value == null) {
+                return new Node(path, null, fingerprinter.fingerprint(null), null, null, null, 0, null);
+            }
+
+            Kind kind = differ.getValueTypes().get(value.getClass()).getKind();
+            if (isLeaf(kind)) {
+                return new Node(path, kind, fingerprinter.fingerprint(value), keep(path, value), value.getClass(), null, 0, null);
+            }
+            Node first = captured.get(value);
+            if (first != null) {
+                return first;
+            }
+
+            Node node = captureComposite(path, ignoreState, kind, fingerprinter.fingerprint(value), value);
+            captured.put(value, node);
+            return node;
+        }
+
+        private Node captureComposite(DiffPath path, State ignoreState, Kind kind, long fingerprint, Object value) {
+            switch (kind) {
+                case MAP:
+                    Map<?, ?> map = (Map<?, ?>) value;
+                    return new Node(path, kind, fingerprint, null, value.getClass(), null, map.size(), captureEntries(path, ignoreState, map));
+                case COLLECTION:
+                    return captureCollection(path, ignoreState, fingerprint, (Collection<?>) value);
+                case ARRAY:
+                    int length = Array.getLength(value);
+                    if (value.getClass().getComponentType().isPrimitive()) {
+                        return new Node(path, kind, fingerprint, PrimitiveArrays.copyOfRange(value, 0, length), value.getClass(), null, length, null);
+                    }
+                    Object[] items = (Object[]) value;
+                    for (int i = length - 1; i >= 0; i--) {
+                        pushChild(path.child(i), ignoreState, items[i]);
+                    }
+                    return new Node(path, kind, fingerprint, null, value.getClass(), null, length, null);
+                default:
+                    for (FieldDiffPlan field : Lists.reverse(differ.getClassDiffPlans().get(value.getClass()).getFields())) {
+                        if (field.isAccessible()) {
+                            pushChild(path.child(field.getName()), ignoreState, field.get(value));
+                        }
+                    }
+                    return new Node(path, kind, fingerprint, null, value.getClass(), null, 0, null);
+            }
+        }
+
+        /**
+         * Items are captured under their key if the collection has a key function that indexes it, else under their index.
+         * Their keys are kept for the UNORDERED and SEQUENCE modes either way, as the diff falls back to them
+         * when the right collection cannot be indexed.
+         */
+        private Node captureCollection(DiffPath path, State ignoreState, long fingerprint, Collection<?> collection) {
+            Class itemClass = getCollectionItemClass(collection);
+            Function keyFunction = differ.getCollectionItemKeyFunctions().get(itemClass).orElse(null);
+            Object[] items = collection.toArray();
+            Object[] itemKeys = differ.getCollectionDiffMode() == CollectionDiffMode.BY_INDEX ? null : itemKeys(path, items);
+            if (keyFunction != null) {
+                try {
+                    Map<?, ?> index = Maps.uniqueIndex(collection, keyFunction);
+                    return new Node(path, Kind.COLLECTION, fingerprint, itemKeys, collection.getClass(), itemClass, items.length,
+                        captureEntries(path, ignoreState, index));
+                } catch (Exception e) {
+                    log.warn("Failed to transform collection. collection={}, function={}", collection, keyFunction, e);
+                }
+            }
+
+            for (int i = items.length - 1; i >= 0; i--) {
+                pushChild(path.child(i), ignoreState, items[i]);
+            }
+            return new Node(path, Kind.COLLECTION, fingerprint, itemKeys, collection.getClass(), null, items.length, null);
+        }
+
+        private Object[] itemKeys(DiffPath path, Object[] items) {
+            Object[] keys = new Object[items.length];
+            for (int i = 0; i < items.length; i++) {
+                Object key = itemKey(differ, fingerprinter, items[i]);
+                keys[i] = key != null && key == items[i] ? keep(path.child(i), key) : key;
+            }
+            return keys;
+        }
+
+        /**
+         * Copy of a simple or comparable value that does not change with the original.
+         */
+        private Object keep(DiffPath path, Object value) {
+            if (value instanceof Date) {
+                return ((Date) value).clone();
+            } else if (isImmutable(value.getClass())) {
+                return value;
+            } else if (value instanceof Serializable) {
+                return copy(path, (Serializable) value);
+            }
+            throw new UnsupportedOperationException(String.format(
+                "Cannot snapshot %s: %s is neither an immutable JDK value, a Date nor Serializable, so it cannot be copied.",
+                path, value.getClass().getName()));
+        }
+
+        private boolean isImmutable(Class<?> type) {
+            return Enum.class.isAssignableFrom(type) || type == String.class || Primitives.isWrapperType(type)
+                || type == BigDecimal.class || type == BigInteger.class || type == UUID.class || type.getName().startsWith("java.time.");
+        }
+
+        private Object copy(DiffPath path, Serializable value) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(value);
+                }
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                    return in.readObject();
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                throw new UnsupportedOperationException(String.format("Cannot snapshot %s: failed to copy %s.", path, value.getClass().getName()), e);
+            }
+        }
+
+        /**
+         * Entries are captured under the string of their key, the nodes do not reference the keys themselves.
+         */
+        private ImmutableSet<String> captureEntries(DiffPath path, State ignoreState, Map<?, ?> map) {
+            ImmutableSet.Builder<String> keys = ImmutableSet.builder();
+            Object[] entries = map.entrySet().toArray();
+            for (int i = entries.length - 1; i >= 0; i--) {
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) entries[i];
+                pushChild(path.key(String.valueOf(entry.getKey())), ignoreState, entry.getValue());
+            }
+            for (Object key : map.keySet()) {
+                keys.add(String.valueOf(key));
+            }
+            return keys.build();
+        }
+
+        private void pushChild(DiffPath childPath, State ignoreState, Object value) {
+            stack.push(new Pending(childPath, ignoreMatcher.child(ignoreState, childPath), value));
+        }
+    }
+
+    /**
+     * Value still to be walked at a path.
+     */
+    @Getter(AccessLevel.PRIVATE)
+    private static final class Pending {
+        private final DiffPath path;
+        private final State ignoreState;
+        private final Object value;
+
+        Pending(DiffPath path, State ignoreState, Object value) {
+            this.path = path;
+            this.ignoreState = ignoreState;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+import com.alphawang.diff.plan.ClassDiffPlan;
+import com.alphawang.diff.plan.FieldDiffPlan;
+import com.alphawang.diff.type.TypeDiffer;
+import com.alphawang.diff.util.IdentityPairSet;
+import com.alphawang.diff.util.PrimitiveArrays;
+import com.google.common.base.Function;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alphawang.diff.Difference.DifferenceType.NULL_VS_NONNULL;
+import static com.alphawang.diff.Difference.DifferenceType.SIZE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.TYPE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.VALUE_NOT_EQUALS;
+import static com.alphawang.diff.plan.FieldDiffPlan.FieldKind.SIMPLE;
+import static com.alphawang.diff.util.ReflectionUtils.getCollectionItemClass;
+
+/**
+ * Depth-first diff of two object graphs with an explicit stack instead of recursion, so the depth is bounded by the heap only.
+ * Leaves are compared as soon as they are met, and objects, maps, collections and arrays push a {@link DiffFrame}
+ * that yields one child per step; the differences come in the same order as a recursive pre-order walk.
+ * The stack is kept per thread and reused by the next traversal on that thread.
+ */
+@Slf4j
+final class DiffTraversal implements AutoCloseable {
+
+    private static final int MAX_RETAINED_DEPTH = 4096;
+    private static final ThreadLocal<ArrayDeque<DiffFrame>> STACKS = new ThreadLocal<>();
+
+    private final ObjectDiffer differ;
+    private final IgnorePathMatcher ignoreMatcher;
+    private final DifferenceListener listener;
+    private final IdentityPairSet visited;
+    private final ArrayDeque<DiffFrame> stack;
+    /**
+     * Null unless metrics are on.
+     */
+    private final DiffCounters counters;
+    /**
+     * Null unless profiling is on.
+     */
+    private final DiffProfiler profiler;
+    /**
+     * Null unless the diff is asynchronous.
+     */
+    private final DiffDeadline deadline;
+    private final DiffRules.Reporter reporter = this::report;
+    private int maxDepth;
+    /**
+     * Set once an up-front equals overflowed the stack, then the maps, collections and objects below are walked without it.
+     */
+    private boolean tooDeepForEquals;
+
+    private DiffTraversal(ObjectDiffer differ, DifferenceListener listener, IdentityPairSet visited, DiffCounters counters,
+                          DiffDeadline deadline) {
+        this.differ = differ;
+        this.counters = counters;
+        this.deadline = deadline;
+        this.profiler = differ.getProfiler();
+        this.ignoreMatcher = differ.getIgnoreMatcher();
+        this.listener = listener;
+        this.visited = visited;
+        ArrayDeque<DiffFrame> cached = STACKS.get();
+        if (cached != null) {
+            STACKS.set(null);
+            this.stack = cached;
+        } else {
+            // first traversal on this thread, or one nested in another, e.g. a parallel task run by the calling thread
+            this.stack = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return whether the diff stopped because the listener reached its limit, or the deadline was reached
+     */
+    static boolean run(ObjectDiffer differ, DifferenceListener listener, Object left, Object right, DiffCounters counters,
+                       DiffDeadline deadline) {
+        try (DiffTraversal traversal = new DiffTraversal(differ, listener, IdentityPairSet.create(), counters, deadline)) {
+            traversal.diff(DiffPath.ROOT, differ.getIgnoreMatcher().root(), left, right);
+        } catch (DifferenceLimitReached e) {
+            return true;
+        } catch (Exception e) {
+            log.error("Diff Object ERROR.", e);
+        }
+        return false;
+    }
+
+    /**
+     * Passes at most limit differences to the listener, and stops the diff at the next one.
+     */
+    static DifferenceListener limit(DifferenceListener listener, int limit) {
+        return limit == Integer.MAX_VALUE ? listener : new LimitedListener(listener, limit);
+    }
+
+    @Override
+    public void close() {
+        if (counters != null) {
+            counters.depth(maxDepth);
+        }
+        if (maxDepth <= MAX_RETAINED_DEPTH) {
+            stack.clear();
+            STACKS.set(stack);
+        }
+    }
+
+    /**
+     * Diff left and right at path, and everything below them.
+     */
+    private void diff(DiffPath path, State ignoreState, Object left, Object right) {
+        visit(path, ignoreState, left, right);
+        drain();
+    }
+
+    void drain() {
+        while (!stack.isEmpty()) {
+            DiffDeadline.step(deadline);
+            DiffFrame frame = stack.peek();
+            if (frame.hasNext()) {
+                frame.next();
+            } else {
+                stack.pop();
+                if (frame.getProfiledPath() != null) {
+                    profiler.record(frame.getProfiledPath(), System.nanoTime() - frame.getProfiledSince());
+                }
+            }
+        }
+    }
+
+    private void push(DiffFrame frame) {
+        stack.push(frame);
+        if (stack.size() > maxDepth) {
+            maxDepth = stack.size();
+        }
+    }
+
+    /**
+     * Compare left and right, and push a frame for their children if they have to be diffed one by one.
+     * When profiling, the time of a value whose children are pushed runs until its frame is popped.
+     */
+    void visit(DiffPath path, State ignoreState, Object left, Object right) {
+        if (profiler == null || ignoreState.isIgnored()) {
+            dispatch(path, ignoreState, left, right);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int depth = stack.size();
+        dispatch(path, ignoreState, left, right);
+        if (stack.size() > depth) {
+            stack.peek().profile(path, start);
+        } else {
+            profiler.record(path, System.nanoTime() - start);
+        }
+    }
+
+    private void dispatch(DiffPath path, State ignoreState, Object left, Object right) {
+        if (ignoreState.isIgnored()) {
+            if (counters != null) {
+                counters.ignoredPath();
+            }
+            return;
+        }
+
+        if (left == right) {
+            return;
+        }
+
+        if (left == null || right == null) {
+            report(path, NULL_VS_NONNULL, left, right);
+            return;
+        }
+
+        ValueType type = differ.getValueTypes().get(left.getClass());
+        if (counters != null) {
+            counters.visit(type.getKind());
+        }
+        if (!type.isEqualsSkipped() && isEqual(type.getKind(), left, right)) {
+            return;
+        }
+
+        if (type.getDiffer() != null && diffWithTypeDiffer(path, type.getDiffer(), left, right)) {
+            return;
+        }
+
+        if (isSameFingerprint(type.getKind(), left, right)) {
+            return;
+        }
+
+        switch (type.getKind()) {
+            case MAP:
+                visitMap(path, ignoreState, left, right);
+                break;
+            case COLLECTION:
+                visitCollection(path, ignoreState, left, right);
+                break;
+            case ARRAY:
+                visitArray(path, ignoreState, left, right);
+                break;
+            case SIMPLE:
+                diffSimpleClass(path, left, right);
+                break;
+            case COMPARABLE:
+                diffComparable(path, left, right);
+                break;
+            default:
+                visitObject(path, ignoreState, left, right);
+                break;
+        }
+    }
+
+    /**
+     * Equals of maps, collections and most objects recurses into their children, e.g. through a parsed JSON tree,
+     * so a graph too deep for it is walked iteratively instead.
+     */
+    private boolean isEqual(ValueType.Kind kind, Object left, Object right) {
+        boolean leaf = kind == ValueType.Kind.SIMPLE || kind == ValueType.Kind.COMPARABLE;
+        if (tooDeepForEquals && !leaf) {
+            return false;
+        }
+        try {
+            return left.equals(right);
+        } catch (StackOverflowError e) {
+            log.debug("Equals overflowed the stack, walking the rest of the graph without it");
+            tooDeepForEquals = true;
+            return false;
+        }
+    }
+
+    /**
+     * @return false if right is not handled by the same differ, then left and right are diffed as usual
+     */
+    private boolean diffWithTypeDiffer(DiffPath path, TypeDiffer typeDiffer, Object left, Object right) {
+        if (differ.getValueTypes().get(right.getClass()).getDiffer() != typeDiffer) {
+            return false;
+        }
+        if (!typeDiffer.isEqual(left, right)) {
+            report(path, VALUE_NOT_EQUALS, left, right);
+        }
+        return true;
+    }
+
+    private boolean isSameFingerprint(ValueType.Kind kind, Object left, Object right) {
+        Fingerprinter fingerprinter = differ.getFingerprinter();
+        if (fingerprinter == null || kind == ValueType.Kind.SIMPLE || kind == ValueType.Kind.COMPARABLE) {
+            return false;
+        }
+        return fingerprinter.fingerprint(left, deadline) == fingerprinter.fingerprint(right, deadline);
+    }
+
+    private void diffSimpleClass(DiffPath path, Object left, Object right) {
+        if (!left.equals(right)) {
+            report(path, VALUE_NOT_EQUALS, left, right);
+        }
+    }
+
+    private void diffComparable(DiffPath path, Object left, Object right) {
+        Comparable leftComparable = (Comparable) left;
+        if (leftComparable.compareTo(right) != 0) {
+            report(path, VALUE_NOT_EQUALS, left, right);
+        }
+    }
+
+    private void report(DiffPath path, Difference.DifferenceType type, Object left, Object right) {
+        report(path, type, null, left, right);
+    }
+
+    private void report(DiffPath path, Difference.DifferenceType type, String summary, Object left, Object right) {
+        if (profiler != null) {
+            profiler.recordDifference(path);
+        }
+        listener.onDifference(Difference.of(path.toString(), type, summary, left, right));
+    }
+
+    private void visitSimpleField(DiffPath path, State ignoreState, Object left, Object right) {
+        if (profiler == null || ignoreState.isIgnored()) {
+            diffSimpleField(path, ignoreState, left, right);
+            return;
+        }
+        long start = System.nanoTime();
+        diffSimpleField(path, ignoreState, left, right);
+        profiler.record(path, System.nanoTime() - start);
+    }
+
+    /**
+     * Field whose declared type guarantees a simple value: skip the type dispatch of {@link #visit}.
+     */
+    private void diffSimpleField(DiffPath path, State ignoreState, Object left, Object right) {
+        if (ignoreState.isIgnored()) {
+            if (counters != null) {
+                counters.ignoredPath();
+            }
+            return;
+        }
+        if (counters != null) {
+            counters.visit(ValueType.Kind.SIMPLE);
+        }
+
+        if (Objects.equals(left, right)) {
+            return;
+        }
+
+        if (left == null || right == null) {
+            report(path, NULL_VS_NONNULL, left, right);
+            return;
+        }
+
+        TypeDiffer typeDiffer = differ.getValueTypes().get(left.getClass()).getDiffer();
+        if (typeDiffer != null && diffWithTypeDiffer(path, typeDiffer, left, right)) {
+            return;
+        }
+        diffSimpleClass(path, left, right);
+    }
+
+    private void visitObject(DiffPath path, State ignoreState, Object left, Object right) {
+        if (!visited.add(left, right)) {
+            return;
+        }
+
+        ClassDiffPlan leftPlan = differ.getClassDiffPlans().get(left.getClass());
+        ClassDiffPlan rightPlan = left.getClass() == right.getClass() ? leftPlan : differ.getClassDiffPlans().get(right.getClass());
+        push(new ObjectFrame(this, path, ignoreState, left, right, leftPlan, rightPlan));
+    }
+
+    /**
+     * Diff a field of left against the field of the same name of right, if right has one.
+     */
+    void visitField(DiffPath path, State ignoreState, Object left, Object right, FieldDiffPlan leftField, FieldDiffPlan rightField) {
+        if (rightField == null) {
+            log.debug("No field {} in {}", leftField.getName(), right);
+            return;
+        }
+        if (!leftField.isAccessible() || !rightField.isAccessible()) {
+            return;
+        }
+
+        boolean simple = leftField.getKind() == SIMPLE && rightField.getKind() == SIMPLE;
+        if (simple && leftField == rightField && profiler == null && leftField.isEqual(left, right)) {
+            if (counters != null) {
+                counters.visit(ValueType.Kind.SIMPLE);
+            }
+            return;
+        }
+
+        Object leftValue = leftField.get(left);
+        Object rightValue = rightField.get(right);
+
+        DiffPath fieldPath = path.child(leftField.getName());
+        State fieldIgnoreState = ignoreMatcher.child(ignoreState, fieldPath);
+        if (simple) {
+            visitSimpleField(fieldPath, fieldIgnoreState, leftValue, rightValue);
+        } else {
+            visit(fieldPath, fieldIgnoreState, leftValue, rightValue);
+        }
+    }
+
+    /**
+     * Diff the values of the keys in both maps, and report the keys only in one of them as REMOVED_KEY or ADDED_KEY.
+     * Keys are looked up with the maps' own get/containsKey, and the right keys are only walked if some are not in the left map.
+     */
+    private void visitMap(DiffPath path, State ignoreState, Object leftObj, Object rightObj) {
+        if (!visited.add(leftObj, rightObj)) {
+            return;
+        }
+
+        if (!(leftObj instanceof Map && rightObj instanceof Map)) {
+            log.debug("Class not match for {}, left = {}, right = {}", path, leftObj, rightObj);
+            report(path, TYPE_NOT_SAME, leftObj, rightObj);
+            return;
+        }
+
+        visitMapEntries(path, ignoreState, (Map) leftObj, (Map) rightObj);
+    }
+
+    private void visitMapEntries(DiffPath path, State ignoreState, Map<Object, Object> left, Map<Object, Object> right) {
+        if (isParallel(left.size())) {
+            Map.Entry[] entries = left.entrySet().toArray(new Map.Entry[0]);
+            AtomicInteger sharedCount = new AtomicInteger();
+            diffParallel(entries.length, (traversal, i) -> {
+                if (traversal.visitMapEntry(path, ignoreState, entries[i], right)) {
+                    sharedCount.incrementAndGet();
+                }
+            });
+            diffAddedKeys(path, ignoreState, left, right, sharedCount.get());
+            return;
+        }
+
+        push(new MapFrame(this, path, ignoreState, left, right));
+    }
+
+    /**
+     * @return whether the key is also in the right map
+     */
+    boolean visitMapEntry(DiffPath path, State ignoreState, Map.Entry<Object, Object> leftEntry, Map<Object, Object> right) {
+        Object key = leftEntry.getKey();
+        Object rightValue = right.get(key);
+        boolean shared = rightValue != null || right.containsKey(key);
+
+        DiffPath mapEntryPath = path.key(key);
+        State entryIgnoreState = ignoreMatcher.child(ignoreState, mapEntryPath);
+        if (shared) {
+            visit(mapEntryPath, entryIgnoreState, leftEntry.getValue(), rightValue);
+        } else {
+            DiffRules.reportRemovedKey(mapEntryPath, entryIgnoreState, leftEntry.getValue(), reporter);
+        }
+        return shared;
+    }
+
+    void diffAddedKeys(DiffPath path, State ignoreState, Map<Object, Object> left, Map<Object, Object> right, int sharedKeys) {
+        if (sharedKeys >= right.size()) {
+            return;
+        }
+        for (Map.Entry<Object, Object> entry : right.entrySet()) {
+            if (!left.containsKey(entry.getKey())) {
+                DiffRules.reportAddedKey(ignoreMatcher, path, ignoreState, entry.getKey(), entry.getValue(), reporter);
+            }
+        }
+    }
+
+    private void visitCollection(DiffPath path, State ignoreState, Object leftObj, Object rightObj) {
+        if (!visited.add(leftObj, rightObj)) {
+            return;
+        }
+
+        if (!(leftObj instanceof Collection && rightObj instanceof Collection)) {
+            log.debug("Class not match for {}, left = {}, right = {}", path, leftObj, rightObj);
+            report(path, TYPE_NOT_SAME, leftObj, rightObj);
+            return;
+        }
+
+        Collection left = (Collection) leftObj;
+        Collection right = (Collection) rightObj;
+
+        if (!left.isEmpty() && !right.isEmpty()) {
+            Class itemClass = getCollectionItemClass(left);
+            Function keyFunction = differ.getCollectionItemKeyFunctions().get(itemClass).orElse(null);
+            if (keyFunction != null) {
+                if (deadline != null) {
+                    keyFunction = stepping(keyFunction);
+                }
+                Map leftMap;
+                Map rightMap;
+                try {
+                    leftMap = Maps.uniqueIndex(left, keyFunction);
+                    rightMap = Maps.uniqueIndex(right, keyFunction);
+                } catch (DifferenceLimitReached e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.warn("Failed to transform collection. left={}, right={}, function={}", left, right, keyFunction, e);
+                    if (counters != null) {
+                        counters.keyFunctionFallback();
+                    }
+                    visitCollectionWithoutKey(path, ignoreState, left, right);
+                    return;
+                }
+                visitMapEntries(path, ignoreState, leftMap, rightMap);
+            } else {
+                visitCollectionWithoutKey(path, ignoreState, left, right);
+            }
+
+        } else if (!left.isEmpty() || !right.isEmpty()) {
+            report(path, NULL_VS_NONNULL, left, right);
+        }
+    }
+
+    /**
+     * Key function that also counts a step of the deadline per item, so indexing a huge collection stops in time.
+     */
+    private Function stepping(Function keyFunction) {
+        return item -> {
+            deadline.step();
+            return keyFunction.apply(item);
+        };
+    }
+
+    private void visitCollectionWithoutKey(DiffPath path, State ignoreState, Collection left, Collection right) {
+        switch (differ.getCollectionDiffMode()) {
+            case UNORDERED:
+                diffCollectionUnordered(path, ignoreState, left, right);
+                break;
+            case SEQUENCE:
+                visitCollectionSequence(path, ignoreState, left, right);
+                break;
+            default:
+                if (left.size() != right.size()) {
+                    report(path, SIZE_NOT_SAME, DiffRules.sizeSummary(left.size(), right.size()), left, right);
+                    return;
+                }
+                visitCollectionByIndex(path, ignoreState, left, right);
+                break;
+        }
+    }
+
+    /**
+     * Pair equal items through a hash index of the right items, then report the unpaired ones.
+     */
+    private void diffCollectionUnordered(DiffPath path, State ignoreState, Collection left, Collection right) {
+        DiffRules.diffUnordered(ignoreMatcher, path, ignoreState, left.toArray(), right.toArray(), deadline, reporter);
+    }
+
+    /**
+     * Match equal items with Myers' diff, then walk the unmatched hunks between the matches:
+     * the first deleted and inserted items of a hunk are diffed against each other, the rest are REMOVED or ADDED.
+     */
+    private void visitCollectionSequence(DiffPath path, State ignoreState, Collection left, Collection right) {
+        Object[] leftItems = left.toArray();
+        Object[] rightItems = right.toArray();
+        int[] leftMatches = DiffRules.matchSequence(leftItems, rightItems, deadline);
+        push(new SequenceFrame(this, path, ignoreState, leftItems, rightItems, leftMatches));
+    }
+
+    private void visitCollectionByIndex(DiffPath path, State ignoreState, Collection left, Collection right) {
+        if (isParallel(left.size())) {
+            Object[] leftItems = left.toArray();
+            Object[] rightItems = right.toArray();
+            diffParallel(leftItems.length, (traversal, i) -> traversal.visitIndex(path, ignoreState, i, leftItems[i], rightItems[i]));
+            return;
+        }
+
+        push(new IteratorFrame(this, path, ignoreState, left.iterator(), right.iterator()));
+    }
+
+    void visitIndex(DiffPath path, State ignoreState, int index, Object left, Object right) {
+        DiffPath itemPath = path.child(index);
+        visit(itemPath, ignoreMatcher.child(ignoreState, itemPath), left, right);
+    }
+
+    void reportRemovedItem(DiffPath path, State ignoreState, int leftIndex, Object leftItem) {
+        DiffRules.reportRemovedItem(ignoreMatcher, path, ignoreState, leftIndex, leftItem, reporter);
+    }
+
+    void reportAddedItem(DiffPath path, State ignoreState, int rightIndex, Object rightItem) {
+        DiffRules.reportAddedItem(ignoreMatcher, path, ignoreState, rightIndex, rightItem, reporter);
+    }
+
+    private void visitArray(DiffPath path, State ignoreState, Object leftObj, Object rightObj) {
+        if (!visited.add(leftObj, rightObj)) {
+            return;
+        }
+
+        int leftLength = Array.getLength(leftObj);
+        int rightLength = Array.getLength(rightObj);
+
+        if (leftLength != rightLength) {
+            report(path, SIZE_NOT_SAME, DiffRules.sizeSummary(leftLength, rightLength), leftObj, rightObj);
+            return;
+        }
+
+        if (PrimitiveArrays.isSameType(leftObj, rightObj)) {
+            diffPrimitiveArray(path, ignoreState, leftObj, rightObj);
+            return;
+        }
+
+        if (isParallel(leftLength)) {
+            diffParallel(leftLength, (traversal, i) -> traversal.visitIndex(path, ignoreState, i, Array.get(leftObj, i), Array.get(rightObj, i)));
+            return;
+        }
+
+        push(new ArrayFrame(this, path, ignoreState, leftObj, rightObj, leftLength));
+    }
+
+    /**
+     * Only the mismatching indices are visited, see {@link DiffRules#diffPrimitiveArray}.
+     */
+    private void diffPrimitiveArray(DiffPath path, State ignoreState, Object left, Object right) {
+        if (PrimitiveArrays.equals(left, right)) {
+            return;
+        }
+
+        DiffRules.diffPrimitiveArray(ignoreMatcher, differ.isGroupArrayMismatches(), path, ignoreState, left, right, deadline, reporter);
+    }
+
+    private boolean isParallel(int size) {
+        return differ.getForkJoinPool() != null && size >= differ.getParallelThreshold();
+    }
+
+    /**
+     * Diff children 0 until size in the fork join pool, then emit their differences in index order.
+     * The differences are the same as in the sequential diff: a range that visited a pair also visited by an earlier range
+     * did not know it had to skip it, so it is diffed again after the earlier ones, with the pairs they visited.
+     * Shared objects are rare enough that most ranges are not diffed again.
+     */
+    private void diffParallel(int size, ChildrenDiffTask.ChildDiff childDiff) {
+        ChildrenDiffTask task = new ChildrenDiffTask(this, visited, childDiff, differ.getParallelThreshold(), capacity(listener), 0, size);
+        List<ChildrenDiffTask.Range> ranges = ForkJoinTask.getPool() == differ.getForkJoinPool()
+            ? task.invoke() : differ.getForkJoinPool().invoke(task);
+        for (ChildrenDiffTask.Range range : ranges) {
+            if (visited.containsAny(range.getVisited())) {
+                try (DiffTraversal traversal = new DiffTraversal(differ, listener, visited, counters, deadline)) {
+                    for (int i = range.getFrom(); i < range.getTo(); i++) {
+                        childDiff.visit(traversal, i);
+                        traversal.drain();
+                    }
+                }
+            } else {
+                visited.addAll(range.getVisited());
+                range.getBuffer().emitTo(listener);
+            }
+        }
+    }
+
+    /**
+     * Traversal of a range of a parallel diff into its own listener.
+     * @param rangeVisited child of the visited pairs of this traversal, to keep the pairs of the range apart
+     */
+    DiffTraversal forRange(DifferenceListener rangeListener, IdentityPairSet rangeVisited) {
+        return new DiffTraversal(differ, rangeListener, rangeVisited, counters, deadline);
+    }
+
+    /**
+     * How many differences a listener can take before the diff stops.
+     */
+    private static int capacity(DifferenceListener listener) {
+        if (listener instanceof LimitedListener) {
+            int remaining = ((LimitedListener) listener).remaining();
+            return remaining == Integer.MAX_VALUE ? remaining : remaining + 1;
+        }
+        if (listener instanceof DifferenceBuffer) {
+            return ((DifferenceBuffer) listener).remaining();
+        }
+        return Integer.MAX_VALUE;
+    }
+}
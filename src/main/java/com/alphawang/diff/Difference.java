@@ -1,9 +1,12 @@
 package com.alphawang.diff;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
+import java.lang.ref.WeakReference;
+
 @Getter
 @ToString
 @RequiredArgsConstructor(staticName = "of")
@@ -12,18 +15,77 @@ public class Difference {
     private final DifferenceType type;
     private final String summary;
     
+    @Getter(AccessLevel.NONE)
     private final Object leftValue;
+    @Getter(AccessLevel.NONE)
     private final Object rightValue;
     
     public static Difference of(String path, DifferenceType type, Object leftValue, Object rightValue) {
         return of(path, type, null, leftValue, rightValue);
     }
 
-    enum DifferenceType {
+    public Object getLeftValue() {
+        return WeakValue.unwrap(leftValue);
+    }
+
+    public Object getRightValue() {
+        return WeakValue.unwrap(rightValue);
+    }
+
+    /**
+     * Left value as it is held, e.g. still behind its weak reference, to be copied into another store.
+     */
+    Object heldLeftValue() {
+        return leftValue;
+    }
+
+    Object heldRightValue() {
+        return rightValue;
+    }
+
+    /**
+     * Value held with {@link ValueRetention#WEAK}.
+     */
+    static final class WeakValue extends WeakReference<Object> {
+        WeakValue(Object value) {
+            super(value);
+        }
+
+        static Object unwrap(Object value) {
+            return value instanceof WeakValue ? ((WeakValue) value).get() : value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(get());
+        }
+    }
+
+    public enum DifferenceType {
         VALUE_NOT_EQUALS,
         SIZE_NOT_SAME,
         TYPE_NOT_SAME,
         NULL_VS_NONNULL,
+        /**
+         * Item only in the right collection.
+         */
+        ADDED,
+        /**
+         * Item only in the left collection.
+         */
+        REMOVED,
+        /**
+         * Key only in the right map.
+         */
+        ADDED_KEY,
+        /**
+         * Key only in the left map.
+         */
+        REMOVED_KEY,
+        /**
+         * Run of contiguous array elements not equal, at path first..last, with the runs as values and their length as summary.
+         */
+        RANGE_NOT_EQUALS,
         ;
         
     }
@@ -0,0 +1,37 @@
+package com.alphawang.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Differences of a range of a parallel diff, emitted to the listener once all ranges are done.
+ */
+final class DifferenceBuffer implements DifferenceListener {
+    private final List<Difference> differences = new ArrayList<>();
+    private final int capacity;
+
+    DifferenceBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void onDifference(Difference difference) {
+        differences.add(difference);
+        if (differences.size() >= capacity) {
+            throw DifferenceLimitReached.INSTANCE;
+        }
+    }
+
+    /**
+     * How many more differences this buffer takes.
+     */
+    int remaining() {
+        return capacity - differences.size();
+    }
+
+    void emitTo(DifferenceListener listener) {
+        for (Difference difference : differences) {
+            listener.onDifference(difference);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.alphawang.diff;
+
+/**
+ * Unwinds the traversal once the listener cannot take more differences, or the deadline is reached.
+ */
+final class DifferenceLimitReached extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    static final DifferenceLimitReached INSTANCE = new DifferenceLimitReached();
+
+    private DifferenceLimitReached() {
+        super("Difference limit reached", null, false, false);
+    }
+}
@@ -0,0 +1,11 @@
+package com.alphawang.diff;
+
+/**
+ * Receives each {@link Difference} as soon as it is found.
+ * {@link DiffResult} is the listener that collects them all.
+ */
+@FunctionalInterface
+public interface DifferenceListener {
+
+    void onDifference(Difference difference);
+}
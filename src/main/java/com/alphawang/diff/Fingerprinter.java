@@ -0,0 +1,377 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.ValueType.Kind;
+import com.alphawang.diff.plan.ClassDiffPlans;
+import com.alphawang.diff.plan.FieldAccessorFactory;
+import com.alphawang.diff.plan.FieldDiffPlan;
+import com.alphawang.diff.util.Hashing64;
+import com.alphawang.diff.util.PrimitiveArrays;
+import com.google.common.collect.MapMaker;
+
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Structural 64-bit fingerprints of object graphs, walked with the same rules as the diff:
+ * objects by their fields, maps by their entries in any order, collections and arrays in iteration order,
+ * each with the name of its class.
+ * Two graphs with the same fingerprint have no differences, up to hash collisions,
+ * so {@link ObjectDiff#withFingerprinter} skips the pairs of subtrees whose fingerprints match.
+ * <p>
+ * The fingerprint of every object, collection, map and array is cached by identity, weakly,
+ * so repeated diffs of the same graphs only hash each subtree once.
+ * The cached objects must therefore not change, or be invalidated together with the objects referencing them.
+ * Ignored paths are not taken into account: a fingerprint covers the whole subtree.
+ * Values with no known exact hash, e.g. Comparable classes outside of the JDK, are hashed by their hashCode,
+ * which must then be consistent with their compareTo.
+ */
+public class Fingerprinter {
+
+    private static final long NULL_HASH = 0x2545F4914F6CDD1DL;
+    private static final long CYCLE_HASH = 0x5851F42D4C957F2DL;
+
+    private final ClassDiffPlans classDiffPlans;
+    private final ConcurrentMap<Object, Long> cache = new MapMaker().weakKeys().makeMap();
+    private final ClassValue<Kind> kinds = new ClassValue<Kind>() {
+        @Override
+        protected Kind computeValue(Class<?> type) {
+            return ValueType.kindOf(type);
+        }
+    };
+    private final ClassValue<Long> classHashes = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return Hashing64.hash(type.getName());
+        }
+    };
+
+    Fingerprinter(ClassDiffPlans classDiffPlans) {
+        this.classDiffPlans = classDiffPlans;
+    }
+
+    public static Fingerprinter create() {
+        return new Fingerprinter(ClassDiffPlans.defaults());
+    }
+
+    /**
+     * @param fieldAccessorFactory how field values are read, see {@link ObjectDiff#withFieldAccessorFactory}
+     */
+    public static Fingerprinter create(FieldAccessorFactory fieldAccessorFactory) {
+        return new Fingerprinter(ClassDiffPlans.of(fieldAccessorFactory));
+    }
+
+    /**
+     * Fingerprint of the value and everything it references, from the cache if it was computed before.
+     * Graphs of any depth are walked with an explicit stack, and references back to an enclosing object end the walk.
+     * The fingerprint of an object that references back above itself depends on where the walk started, so it is not cached.
+     */
+    public long fingerprint(Object value) {
+        return fingerprint(value, null);
+    }
+
+    /**
+     * @param deadline stops the walk of a huge graph once reached, may be null
+     */
+    long fingerprint(Object value, DiffDeadline deadline) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        Kind kind = kinds.get(value.getClass());
+        if (!isComposite(kind)) {
+            return leafHash(kind, value);
+        }
+        Long cached = cache.get(value);
+        if (cached != null) {
+            return cached;
+        }
+
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        IdentityHashMap<Object, Integer> depths = new IdentityHashMap<>();
+        // hashes that reference back above their value, only valid in this walk
+        IdentityHashMap<Object, Long> walkHashes = new IdentityHashMap<>();
+        push(stack, depths, kind, value);
+        while (true) {
+            DiffDeadline.step(deadline);
+            Frame top = stack.peek();
+            if (top.hasNext()) {
+                Object child = top.next();
+                Kind childKind = child == null ? null : kinds.get(child.getClass());
+                if (child == null || !isComposite(childKind)) {
+                    top.fold(child == null ? NULL_HASH : leafHash(childKind, child));
+                    continue;
+                }
+                Long childHash = cache.get(child);
+                if (childHash == null && !walkHashes.isEmpty()) {
+                    childHash = walkHashes.get(child);
+                }
+                Integer depth = depths.get(child);
+                if (childHash != null) {
+                    top.fold(childHash);
+                } else if (depth != null) {
+                    top.fold(Hashing64.ordered(CYCLE_HASH, stack.size() - depth));
+                    top.reference(depth);
+                } else {
+                    push(stack, depths, childKind, child);
+                }
+            } else {
+                stack.pop();
+                depths.remove(top.value);
+                long hash = top.finish();
+                // a reference back above the value depends on where the walk started, so it is not cached for other walks
+                if (top.referenced >= stack.size()) {
+                    cache.put(top.value, hash);
+                } else {
+                    walkHashes.put(top.value, hash);
+                }
+                if (stack.isEmpty()) {
+                    return hash;
+                }
+                stack.peek().fold(hash);
+                stack.peek().reference(top.referenced);
+            }
+        }
+    }
+
+    /**
+     * Drop the cached fingerprint of the value, e.g. after it changed.
+     * Fingerprints of the objects referencing it are not dropped.
+     */
+    public void invalidate(Object value) {
+        cache.remove(value);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private static boolean isComposite(Kind kind) {
+        return kind == Kind.MAP || kind == Kind.COLLECTION || kind == Kind.OBJECT
+            || kind == Kind.ARRAY;
+    }
+
+    private void push(ArrayDeque<Frame> stack, IdentityHashMap<Object, Integer> depths, Kind kind, Object value) {
+        depths.put(value, stack.size());
+        Frame frame = frame(kind, value);
+        frame.hash = Hashing64.ordered(frame.hash, classHashes.get(value.getClass()));
+        stack.push(frame);
+    }
+
+    private Frame frame(Kind kind, Object value) {
+        switch (kind) {
+            case MAP:
+                return new MapFrame((Map<?, ?>) value);
+            case COLLECTION:
+                return new IteratorFrame(value, ((Collection<?>) value).iterator());
+            case ARRAY:
+                return value.getClass().getComponentType().isPrimitive()
+                    ? new LeafFrame(value, PrimitiveArrays.hash64(value))
+                    : new ArrayFrame((Object[]) value);
+            default:
+                return new ObjectFrame(value, classDiffPlans.get(value.getClass()).getFields());
+        }
+    }
+
+    private long leafHash(Kind kind, Object value) {
+        long hash;
+        if (value instanceof String) {
+            hash = Hashing64.hash((String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            hash = Double.doubleToLongBits(((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            hash = ((Number) value).longValue();
+        } else if (value instanceof Character) {
+            hash = (Character) value;
+        } else if (value instanceof Boolean) {
+            hash = (Boolean) value ? 1 : 0;
+        } else if (value instanceof Timestamp) {
+            hash = Hashing64.ordered(((Timestamp) value).getTime(), ((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            hash = ((Date) value).getTime();
+        } else if (value instanceof Enum) {
+            hash = Hashing64.hash(((Enum) value).name());
+        } else if (kind == Kind.SIMPLE || value.getClass().getName().startsWith("java.")) {
+            // BigDecimal, BigInteger, LocalDate, Instant, UUID...: the string form is exact
+            hash = Hashing64.hash(value.toString());
+        } else {
+            hash = value.hashCode();
+        }
+        return Hashing64.ordered(classHashes.get(value.getClass()), hash);
+    }
+
+    /**
+     * Children of one value still to be hashed, and the hash of the ones already hashed.
+     */
+    private abstract static class Frame {
+        final Object value;
+        long hash = Hashing64.SEED;
+        /**
+         * Smallest depth referenced back from the value or below it.
+         */
+        int referenced = Integer.MAX_VALUE;
+
+        Frame(Object value) {
+            this.value = value;
+        }
+
+        abstract boolean hasNext();
+
+        abstract Object next();
+
+        void fold(long childHash) {
+            hash = Hashing64.ordered(hash, childHash);
+        }
+
+        long finish() {
+            return Hashing64.finish(hash);
+        }
+
+        void reference(int depth) {
+            referenced = Math.min(referenced, depth);
+        }
+    }
+
+    private static final class LeafFrame extends Frame {
+        LeafFrame(Object value, long hash) {
+            super(value);
+            this.hash = hash;
+        }
+
+        @Override
+        boolean hasNext() {
+            return false;
+        }
+
+        @Override
+        Object next() {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        long finish() {
+            return hash;
+        }
+    }
+
+    private static final class ObjectFrame extends Frame {
+        private final List<FieldDiffPlan> fields;
+        private int index;
+        private long fieldNameHash;
+
+        ObjectFrame(Object value, List<FieldDiffPlan> fields) {
+            super(value);
+            this.fields = fields;
+            skipInaccessible();
+        }
+
+        @Override
+        boolean hasNext() {
+            return index < fields.size();
+        }
+
+        @Override
+        Object next() {
+            FieldDiffPlan field = fields.get(index++);
+            fieldNameHash = Hashing64.hash(field.getName());
+            skipInaccessible();
+            return field.get(value);
+        }
+
+        @Override
+        void fold(long childHash) {
+            hash = Hashing64.ordered(hash, Hashing64.ordered(fieldNameHash, childHash));
+        }
+
+        private void skipInaccessible() {
+            while (index < fields.size() && !fields.get(index).isAccessible()) {
+                index++;
+            }
+        }
+    }
+
+    /**
+     * Children are the keys and values in turn, each entry is folded in regardless of its position.
+     */
+    private static final class MapFrame extends Frame {
+        private final Iterator<? extends Map.Entry<?, ?>> entries;
+        private Map.Entry<?, ?> entry;
+        private long keyHash;
+
+        MapFrame(Map<?, ?> map) {
+            super(map);
+            this.entries = map.entrySet().iterator();
+            this.hash = map.size();
+        }
+
+        @Override
+        boolean hasNext() {
+            return entry != null || entries.hasNext();
+        }
+
+        @Override
+        Object next() {
+            if (entry == null) {
+                entry = entries.next();
+                return entry.getKey();
+            }
+            Object entryValue = entry.getValue();
+            entry = null;
+            return entryValue;
+        }
+
+        @Override
+        void fold(long childHash) {
+            if (entry != null) {
+                keyHash = childHash;
+            } else {
+                hash = Hashing64.unordered(hash, Hashing64.ordered(keyHash, childHash));
+            }
+        }
+    }
+
+    private static final class IteratorFrame extends Frame {
+        private final Iterator<?> items;
+
+        IteratorFrame(Object collection, Iterator<?> items) {
+            super(collection);
+            this.items = items;
+        }
+
+        @Override
+        boolean hasNext() {
+            return items.hasNext();
+        }
+
+        @Override
+        Object next() {
+            return items.next();
+        }
+    }
+
+    private static final class ArrayFrame extends Frame {
+        private final Object[] items;
+        private int index;
+
+        ArrayFrame(Object[] items) {
+            super(items);
+            this.items = items;
+            this.hash = Hashing64.ordered(hash, items.length);
+        }
+
+        @Override
+        boolean hasNext() {
+            return index < items.length;
+        }
+
+        @Override
+        Object next() {
+            return items[index++];
+        }
+    }
+}
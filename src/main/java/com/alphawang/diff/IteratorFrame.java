@@ -0,0 +1,36 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+
+import java.util.Iterator;
+
+/**
+ * Items of two collections of the same size, by index.
+ */
+final class IteratorFrame extends DiffFrame {
+    private final DiffTraversal traversal;
+    private final DiffPath path;
+    private final State ignoreState;
+    private final Iterator left;
+    private final Iterator right;
+    private int index;
+
+    IteratorFrame(DiffTraversal traversal, DiffPath path, State ignoreState, Iterator left, Iterator right) {
+        this.traversal = traversal;
+        this.path = path;
+        this.ignoreState = ignoreState;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    boolean hasNext() {
+        return left.hasNext();
+    }
+
+    @Override
+    void next() {
+        traversal.visitIndex(path, ignoreState, index++, left.next(), right.next());
+    }
+}
@@ -0,0 +1,30 @@
+package com.alphawang.diff;
+
+/**
+ * Passes at most limit differences to the delegate, and stops the diff at the next one.
+ */
+final class LimitedListener implements DifferenceListener {
+    private final DifferenceListener delegate;
+    private int remaining;
+
+    LimitedListener(DifferenceListener delegate, int limit) {
+        this.delegate = delegate;
+        this.remaining = limit;
+    }
+
+    @Override
+    public void onDifference(Difference difference) {
+        if (remaining == 0) {
+            throw DifferenceLimitReached.INSTANCE;
+        }
+        remaining--;
+        delegate.onDifference(difference);
+    }
+
+    /**
+     * How many more differences the delegate takes.
+     */
+    int remaining() {
+        return remaining;
+    }
+}
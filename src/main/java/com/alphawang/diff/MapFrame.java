@@ -0,0 +1,47 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Entries of the left map, then the keys only in the right map.
+ */
+final class MapFrame extends DiffFrame {
+    private final DiffTraversal traversal;
+    private final DiffPath path;
+    private final State ignoreState;
+    private final Map<Object, Object> left;
+    private final Map<Object, Object> right;
+    private final Iterator<Map.Entry<Object, Object>> leftEntries;
+    private int sharedKeys;
+    private boolean done;
+
+    MapFrame(DiffTraversal traversal, DiffPath path, State ignoreState, Map<Object, Object> left, Map<Object, Object> right) {
+        this.traversal = traversal;
+        this.path = path;
+        this.ignoreState = ignoreState;
+        this.left = left;
+        this.right = right;
+        this.leftEntries = left.entrySet().iterator();
+    }
+
+    @Override
+    boolean hasNext() {
+        return !done;
+    }
+
+    @Override
+    void next() {
+        if (leftEntries.hasNext()) {
+            if (traversal.visitMapEntry(path, ignoreState, leftEntries.next(), right)) {
+                sharedKeys++;
+            }
+            return;
+        }
+        done = true;
+        traversal.diffAddedKeys(path, ignoreState, left, right, sharedKeys);
+    }
+}
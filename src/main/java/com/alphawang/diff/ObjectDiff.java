@@ -1,38 +1,57 @@
 package com.alphawang.diff;
 
-import com.alphawang.diff.util.ReflectionUtils;
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.plan.ClassDiffPlans;
+import com.alphawang.diff.plan.FieldAccessorFactory;
+import com.alphawang.diff.plan.FieldAccessors;
+import com.alphawang.diff.type.TypeDiffer;
+import com.alphawang.diff.type.TypeDiffers;
 import com.google.common.base.Function;
-import com.google.common.collect.Maps;
-import lombok.extern.slf4j.Slf4j;
+import com.google.common.base.Preconditions;
+import lombok.AccessLevel;
+import lombok.Getter;
 
-import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-
-import static com.alphawang.diff.Difference.DifferenceType.NULL_VS_NONNULL;
-import static com.alphawang.diff.Difference.DifferenceType.SIZE_NOT_SAME;
-import static com.alphawang.diff.Difference.DifferenceType.TYPE_NOT_SAME;
-import static com.alphawang.diff.Difference.DifferenceType.VALUE_NOT_EQUALS;
-import static com.alphawang.diff.util.DiffUtils.isEmpty;
-import static com.alphawang.diff.util.ReflectionUtils.getCollectionItemClass;
-import static com.alphawang.diff.util.ReflectionUtils.getFields;
-import static com.alphawang.diff.util.ReflectionUtils.isSimpleClass;
-
-@Slf4j
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Getter(AccessLevel.PACKAGE)
 public class ObjectDiff {
 
-    private static final String PATH_SEPARATOR = "/";
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1024;
+    private static final int DEFAULT_BATCH_CONCURRENCY = 64;
 
     private Map identities;
     private List<String> ignoreFields;
+    private List<String> ignoreGlobs;
+    private IgnorePathMatcher ignoreMatcher = IgnorePathMatcher.NONE;
     private Map<Class, Function> collectionItemKeyFunction = new HashMap<>();
+    private Set<Class> equalsSkippedClasses;
+    private Map<Class, TypeDiffer> typeDiffers = new HashMap<>();
+    private ClassDiffPlans classDiffPlans = ClassDiffPlans.defaults();
+    private ForkJoinPool forkJoinPool;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private Executor executor;
+    private int batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+    private int maxDifferences = Integer.MAX_VALUE;
+    private CollectionDiffMode collectionDiffMode = CollectionDiffMode.BY_INDEX;
+    private boolean groupArrayMismatches;
+    private Fingerprinter fingerprinter;
+    private DiffMetricsListener metricsListener;
+    private DiffProfiler profiler;
+    private ValueRetention valueRetention = ValueRetention.FULL;
+    private boolean rootsRetained = true;
+    private boolean compactResults;
     private Object left;
     private Object right;
+    /**
+     * Built on first use, dropped when the configuration changes, so repeated diffs reuse its caches.
+     */
+    private ObjectDiffer differ;
 
     private ObjectDiff() { }
 
@@ -57,7 +76,20 @@ public class ObjectDiff {
      */
     public ObjectDiff withIgnorePaths(List<String> ignoreFields) {
         this.ignoreFields = ignoreFields;
-        return this;
+        this.ignoreMatcher = IgnorePathMatcher.compile(ignoreFields, ignoreGlobs);
+        return changed();
+    }
+
+    /**
+     * Globs for the paths need to be ignored, e.g. /itemList/&#42;/modifiedAt or /itemMap/&#42;&#42;.
+     * &#42; matches one path segment, or any part of a segment, and &#42;&#42; matches any number of segments.
+     * @param ignoreGlobs
+     * @return
+     */
+    public ObjectDiff withIgnoreGlobs(List<String> ignoreGlobs) {
+        this.ignoreGlobs = ignoreGlobs;
+        this.ignoreMatcher = IgnorePathMatcher.compile(ignoreFields, ignoreGlobs);
+        return changed();
     }
 
     /**
@@ -73,7 +105,7 @@ public class ObjectDiff {
      */
     public ObjectDiff addCollectionItemKeyFunction(Class clazz, Function collectionItemKeyFunction) {
         this.collectionItemKeyFunction.put(clazz, collectionItemKeyFunction);
-        return this;
+        return changed();
     }
 
     /**
@@ -89,216 +121,267 @@ public class ObjectDiff {
      */
     public ObjectDiff withCollectionItemKeyFunction(Map<Class, Function> collectionItemKeyFunction) {
         this.collectionItemKeyFunction = collectionItemKeyFunction;
-        return this;
+        return changed();
     }
 
     /**
-     * Left Object
-     * @param left
+     * Compare the values of a class, and of its subclasses and implementations, with the differ instead of the built-in diff.
+     * The differ of the closest superclass wins.
+     * @param clazz
+     * @param typeDiffer see {@link TypeDiffers} for the built-in ones
      * @return
      */
-    public ObjectDiff withLeft(Object left) {
-        this.left = left;
-        return this;
+    public <T> ObjectDiff addTypeDiffer(Class<T> clazz, TypeDiffer<? super T> typeDiffer) {
+        this.typeDiffers.put(clazz, typeDiffer);
+        return changed();
     }
 
     /**
-     * Right Object
-     * @param right
+     * Differs by class, see {@link #addTypeDiffer}.
+     * @param typeDiffers
      * @return
      */
-    public ObjectDiff withRight(Object right) {
-        this.right = right;
-        return this;
+    public ObjectDiff withTypeDiffers(Map<Class, TypeDiffer> typeDiffers) {
+        this.typeDiffers = typeDiffers;
+        return changed();
     }
 
     /**
-     * Generate diff result
+     * Classes, and their subtypes, whose equals is itself a deep comparison: their values are diffed directly
+     * instead of calling equals first, so the same structure is not walked twice.
+     * Also avoids equals on graphs with cycles, which are otherwise only detected by the diff itself.
+     * @param equalsSkippedClasses
      * @return
      */
-    public DiffResult diff() {
-        DiffResult diffResult = new DiffResult(identities, left, right);
-
-        try {
-            diff(diffResult, "", left, right);
-        } catch (Exception e) {
-            log.error("Diff Object ERROR.", e);
-        }
-        return diffResult;
+    public ObjectDiff withEqualsSkippedClasses(Set<Class> equalsSkippedClasses) {
+        this.equalsSkippedClasses = equalsSkippedClasses;
+        return changed();
     }
 
+    /**
+     * How items of collections without a collection item key function are paired, by index by default.
+     * Also used when a key function cannot index a collection, e.g. because of duplicate keys.
+     * @param collectionDiffMode
+     * @return
+     */
+    public ObjectDiff withCollectionDiffMode(CollectionDiffMode collectionDiffMode) {
+        this.collectionDiffMode = Preconditions.checkNotNull(collectionDiffMode);
+        return changed();
+    }
 
-    private void diff(DiffResult diffResult, String path, Object left, Object right) {
-        if (ignore(path, ignoreFields)) {
-            return;
-        }
+    /**
+     * Report a run of contiguous mismatching elements of primitive arrays as a single RANGE_NOT_EQUALS difference at
+     * path first..last, instead of one VALUE_NOT_EQUALS per index.
+     * @param groupArrayMismatches
+     * @return
+     */
+    public ObjectDiff withGroupArrayMismatches(boolean groupArrayMismatches) {
+        this.groupArrayMismatches = groupArrayMismatches;
+        return changed();
+    }
 
-        if (Objects.equals(left, right)) {
-            return;
-        }
+    /**
+     * Skip the objects, collections, maps and arrays whose fingerprints are the same on both sides.
+     * Fingerprints are cached by the fingerprinter, so sharing one between diffs of unchanged graphs
+     * makes the matching subtrees free after the first diff.
+     * Equals still comes first, so this pays off for the classes of {@link #withEqualsSkippedClasses}.
+     * @param fingerprinter
+     * @return
+     */
+    public ObjectDiff withFingerprinter(Fingerprinter fingerprinter) {
+        this.fingerprinter = fingerprinter;
+        return changed();
+    }
 
-        if (left == null && right != null) {
-            diffResult.add(Difference.of(path, NULL_VS_NONNULL, null, right));
-            return;
-        }
-        if (left != null && right == null) {
-            diffResult.add(Difference.of(path, NULL_VS_NONNULL, left, null));
-            return;
-        }
+    /**
+     * How field values are read. By default through {@link java.lang.invoke.MethodHandle}s, see {@link FieldAccessors}.
+     * @param fieldAccessorFactory
+     * @return
+     */
+    public ObjectDiff withFieldAccessorFactory(FieldAccessorFactory fieldAccessorFactory) {
+        this.classDiffPlans = ClassDiffPlans.of(fieldAccessorFactory);
+        return changed();
+    }
 
-        if (left instanceof Map) {
-            diffMap(diffResult, path, left, right);
-        } else if (left instanceof Collection) {
-            diffCollection(diffResult, path, left, right);
-        } else if (left.getClass().isArray()) {
-            diffArray(diffResult, path, left, right);
-        } else if (isSimpleClass(left)) {
-            diffSimpleClass(diffResult, path, left, right);
-        } else if (left instanceof Comparable) {
-            diffComparable(diffResult, path, left, right);
-        } else {
-            diffObject(diffResult, path, left, right);
-        }
+    /**
+     * Diff large collections, maps and arrays in parallel in the given pool, in ranges of at most {@link #withParallelThreshold} children.
+     * The differences and their order are the same as in the sequential diff, whatever the scheduling of the ranges.
+     * An object shared by several ranges is only diffed where the sequential diff first reaches it:
+     * a range that reached it again is diffed once more after the ranges before it.
+     * @param forkJoinPool
+     * @return
+     */
+    public ObjectDiff withParallelism(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+        return changed();
+    }
 
+    /**
+     * With parallelism, collections, maps and arrays of at least this size are split into tasks of at most this size.
+     * Default is 1024.
+     * @param parallelThreshold
+     * @return
+     */
+    public ObjectDiff withParallelThreshold(int parallelThreshold) {
+        Preconditions.checkArgument(parallelThreshold > 0, "parallelThreshold must be positive");
+        this.parallelThreshold = parallelThreshold;
+        return changed();
     }
 
-    private boolean ignore(String path, List<String> ignorePaths) {
-        if (path == null || path.length() == 0 || isEmpty(ignorePaths)) {
-            return false;
-        }
+    /**
+     * Stop the diff once this many differences are found, the DiffResult is then marked as truncated.
+     * @param maxDifferences
+     * @return
+     */
+    public ObjectDiff withMaxDifferences(int maxDifferences) {
+        Preconditions.checkArgument(maxDifferences > 0, "maxDifferences must be positive");
+        this.maxDifferences = maxDifferences;
+        return changed();
+    }
 
-        for (String regex : ignorePaths) {
-            if (path.matches(regex)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Count what each diff does, see {@link DiffMetrics}: the metrics are attached to the {@link DiffResult}
+     * and published to the listener. Off by default, when it costs nothing.
+     * @param metricsListener {@link DiffMetricsListener#NONE} to only attach them to the result
+     * @return
+     */
+    public ObjectDiff withMetrics(DiffMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        return changed();
     }
 
-    private void diffSimpleClass(DiffResult diffResult, String path, Object left, Object right) {
-        if (!left.equals(right)) {
-            diffResult.add(Difference.of(path, VALUE_NOT_EQUALS, left, right));
-        }
+    /**
+     * Accumulate visits, time and differences per path template in the profiler, to see which paths the diffs spend
+     * their time in. Off by default.
+     * @param profiler
+     * @return
+     */
+    public ObjectDiff withProfiler(DiffProfiler profiler) {
+        this.profiler = profiler;
+        return changed();
     }
 
-    private void diffComparable(DiffResult diffResult, String path, Object left, Object right) {
-        Comparable leftComparable = (Comparable) left;
-        if (leftComparable.compareTo(right) != 0) {
-            diffResult.add(Difference.of(path, VALUE_NOT_EQUALS, left, right));
-        }
+    /**
+     * What the {@link DiffResult} keeps of the left and right values of its differences, the values themselves by default.
+     * {@link ValueRetention#SUMMARY} keeps a bounded preview instead of e.g. whole collections.
+     * @param valueRetention
+     * @return
+     */
+    public ObjectDiff withValueRetention(ValueRetention valueRetention) {
+        this.valueRetention = Preconditions.checkNotNull(valueRetention);
+        return changed();
     }
 
-    private void diffObject(DiffResult diffResult, String path, Object left, Object right) {
-        Map<String, Field> leftFields = getFields(left.getClass());
-        Map<String, Field> rightFields = getFields(right.getClass());
-
-        for (Map.Entry<String, Field> entry : leftFields.entrySet()) {
-            String fieldName = entry.getKey();
-            Field leftField = entry.getValue();
-            Field rightField = rightFields.get(fieldName);
-            if (rightField == null) {
-                log.debug("No field {} in {}", fieldName, right);
-                continue;
-            }
-
-            leftField.setAccessible(true);
-            rightField.setAccessible(true);
-            try {
-                Object leftValue = leftField.get(left);
-                Object rightValue = rightField.get(right);
-
-                String fieldPath = path + PATH_SEPARATOR + fieldName;
-                diff(diffResult, fieldPath, leftValue, rightValue);
-            } catch (IllegalAccessException e) {
-                log.debug("cannot access {}#{}", left.getClass().getSimpleName(), fieldName);
-                continue;
-            }
-        }
+    /**
+     * Whether the {@link DiffResult} keeps the left and right roots, true by default.
+     * @param rootsRetained
+     * @return
+     */
+    public ObjectDiff withRootsRetained(boolean rootsRetained) {
+        this.rootsRetained = rootsRetained;
+        return changed();
+    }
 
+    /**
+     * Store the differences of each {@link DiffResult} with shared path prefixes and in parallel arrays,
+     * which takes a fraction of the memory for very large results. Differences are then created when they are read.
+     * @param compactResults
+     * @return
+     */
+    public ObjectDiff withCompactResults(boolean compactResults) {
+        this.compactResults = compactResults;
+        return changed();
     }
 
-    private void diffMap(DiffResult diffResult, String path, Object leftObj, Object rightObj) {
-        if (!(leftObj instanceof Map && rightObj instanceof Map)) {
-            log.debug("Class not match for {}, left = {}, right = {}", path, leftObj, rightObj);
-            diffResult.add(Difference.of(path, TYPE_NOT_SAME, leftObj, rightObj));
-        }
+    /**
+     * Left Object
+     * @param left
+     * @return
+     */
+    public ObjectDiff withLeft(Object left) {
+        this.left = left;
+        return this;
+    }
 
-        Map left = (Map) leftObj;
-        Map right = (Map) rightObj;
-
-        if (left != null && !left.isEmpty() && right != null && !right.isEmpty()) {
-            if (left.size() == right.size()) {
-                for (Object key : left.keySet()) {
-                    String mapEntryPath = path + PATH_SEPARATOR + key;
-                    Object leftValue = left.get(key);
-                    Object rightValue = right.get(key);
-
-                    diff(diffResult, mapEntryPath, leftValue, rightValue);
-                }
-            } else {
-                diffResult.add(Difference.of(path, SIZE_NOT_SAME, left.size() + " : " + right.size(), left, right));
-            }
-        }
+    /**
+     * Right Object
+     * @param right
+     * @return
+     */
+    public ObjectDiff withRight(Object right) {
+        this.right = right;
+        return this;
     }
 
-    private void diffCollection(DiffResult diffResult, String path, Object leftObj, Object rightObj) {
-        if (!(leftObj instanceof Collection && rightObj instanceof Collection)) {
-            log.debug("Class not match for {}, left = {}, right = {}", path, leftObj, rightObj);
-            diffResult.add(Difference.of(path, TYPE_NOT_SAME, leftObj, rightObj));
-        }
+    /**
+     * Executor of {@link ObjectDiffer#diffAll}, by default pairs are diffed one by one in the consuming thread.
+     * @param executor
+     * @return
+     */
+    public ObjectDiff withExecutor(Executor executor) {
+        this.executor = executor;
+        return changed();
+    }
 
-        Collection left = (Collection) leftObj;
-        Collection right = (Collection) rightObj;
-
-        if (!left.isEmpty() && !right.isEmpty()) {
-            if (left.size() != right.size()) {
-                diffResult.add(Difference.of(path, SIZE_NOT_SAME, left.size() + " : " + right.size(), left, right));
-                return;
-            }
-
-            Class itemClass = getCollectionItemClass(left);
-            Function keyFunction = ReflectionUtils.getValue(collectionItemKeyFunction, itemClass);
-            if (keyFunction != null) {
-                try {
-                    Map leftMap = Maps.uniqueIndex(left, keyFunction);
-                    Map rightMap = Maps.uniqueIndex(right, keyFunction);
-                    diffMap(diffResult, path, leftMap, rightMap);
-                } catch (Exception e) {
-                    log.warn("Failed to transform collection. left={}, right={}, function={}", left, right, keyFunction, e);
-                    diffCollectionByIndex(diffResult, path, left, right);
-                }
-            } else {
-                diffCollectionByIndex(diffResult, path, left, right);
-            }
-
-        } else {
-            diffResult.add(Difference.of(path, NULL_VS_NONNULL, left, right));
-        }
+    /**
+     * With an executor, how many pairs {@link ObjectDiffer#diffAll} diffs ahead of the consumer of the results.
+     * Default is 64.
+     * @param batchConcurrency
+     * @return
+     */
+    public ObjectDiff withBatchConcurrency(int batchConcurrency) {
+        Preconditions.checkArgument(batchConcurrency > 0, "batchConcurrency must be positive");
+        this.batchConcurrency = batchConcurrency;
+        return changed();
     }
 
-    private void diffCollectionByIndex(DiffResult diffResult, String path, Collection left, Collection right) {
-        Iterator leftIter = left.iterator();
-        Iterator rightIter = right.iterator();
-        for (int i = 0; i < left.size(); i++) {
-            String collectionItemPath = path + PATH_SEPARATOR + i;
-            diff(diffResult, collectionItemPath, leftIter.next(), rightIter.next());
+    /**
+     * Immutable, thread-safe differ with the current configuration, to diff many pairs.
+     * Identities, left and right are not part of it. The same differ is returned until the configuration changes.
+     * @return
+     */
+    public ObjectDiffer toDiffer() {
+        if (differ == null) {
+            differ = new ObjectDiffer(this);
         }
+        return differ;
     }
 
-    private void diffArray(DiffResult diffResult, String path, Object leftObj, Object rightObj) {
-        int leftLength = Array.getLength(leftObj);
-        int rightLength = Array.getLength(rightObj);
+    private ObjectDiff changed() {
+        differ = null;
+        return this;
+    }
 
-        if (leftLength != rightLength) {
-            diffResult.add(Difference.of(path, SIZE_NOT_SAME, leftLength + " : " + rightLength, leftObj, rightObj));
-            return;
-        }
+    /**
+     * Generate diff result
+     * @return
+     */
+    public DiffResult diff() {
+        return toDiffer().diff(identities, left, right);
+    }
 
-        for (int i = 0; i < leftLength; i++) {
-            String arrayPath = path + PATH_SEPARATOR + i;
-            diff(diffResult, arrayPath, Array.get(leftObj, i), Array.get(rightObj, i));
-        }
+    /**
+     * Diff on the executor, off the calling thread, see {@link ObjectDiffer#diffAsync}.
+     * @param executor
+     * @return
+     */
+    public CompletableFuture<DiffResult> diffAsync(DiffExecutor executor) {
+        return toDiffer().diffAsync(executor, identities, left, right);
     }
 
+    /**
+     * Whether left and right are different, the diff stops at the first difference.
+     * @return
+     */
+    public boolean isDifferent() {
+        return toDiffer().isDifferent(left, right);
+    }
 
+    /**
+     * Emit every difference to the listener as soon as it is found, instead of collecting them in a {@link DiffResult}.
+     * @param listener
+     */
+    public void diff(DifferenceListener listener) {
+        toDiffer().diff(left, right, listener);
+    }
 }
@@ -0,0 +1,269 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.plan.ClassDiffPlans;
+import com.alphawang.diff.type.TypeDiffer;
+import com.alphawang.diff.util.ReflectionUtils;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable and thread-safe differ, created by {@link ObjectDiff#toDiffer()}.
+ * Ignore paths, class plans and collection key functions are compiled once and reused by every diff,
+ * which walks the objects with a {@link DiffTraversal}.
+ * Within a diff, a pair of objects, collections, maps or arrays is only diffed at the first path it is met,
+ * which also breaks cycles of references.
+ */
+@Getter(AccessLevel.PACKAGE)
+public class ObjectDiffer {
+
+    private final IgnorePathMatcher ignoreMatcher;
+    private final ClassValue<Optional<Function>> collectionItemKeyFunctions;
+    private final ClassValue<ValueType> valueTypes;
+    private final ClassDiffPlans classDiffPlans;
+    private final ForkJoinPool forkJoinPool;
+    private final int parallelThreshold;
+    private final Executor executor;
+    private final int batchConcurrency;
+    private final int maxDifferences;
+    private final CollectionDiffMode collectionDiffMode;
+    private final boolean groupArrayMismatches;
+    private final Fingerprinter fingerprinter;
+    private final DiffMetricsListener metricsListener;
+    private final DiffProfiler profiler;
+    private final ValueRetention valueRetention;
+    private final boolean rootsRetained;
+    private final boolean compactResults;
+
+    ObjectDiffer(ObjectDiff config) {
+        Map<Class, Function> keyFunctions = config.getCollectionItemKeyFunction() == null
+            ? ImmutableMap.of()
+            : ImmutableMap.copyOf(config.getCollectionItemKeyFunction());
+
+        this.ignoreMatcher = config.getIgnoreMatcher();
+        this.collectionItemKeyFunctions = new ClassValue<Optional<Function>>() {
+            @Override
+            protected Optional<Function> computeValue(Class<?> type) {
+                return Optional.ofNullable(ReflectionUtils.getValue(keyFunctions, type));
+            }
+        };
+        Set<Class> equalsSkippedClasses = config.getEqualsSkippedClasses() == null
+            ? ImmutableSet.of()
+            : ImmutableSet.copyOf(config.getEqualsSkippedClasses());
+        Map<Class, TypeDiffer> typeDiffers = config.getTypeDiffers() == null
+            ? ImmutableMap.of()
+            : ImmutableMap.copyOf(config.getTypeDiffers());
+        this.valueTypes = new ClassValue<ValueType>() {
+            @Override
+            protected ValueType computeValue(Class<?> type) {
+                return ValueType.of(type, typeDiffers, equalsSkippedClasses);
+            }
+        };
+        this.classDiffPlans = config.getClassDiffPlans();
+        this.forkJoinPool = config.getForkJoinPool();
+        this.parallelThreshold = config.getParallelThreshold();
+        this.executor = config.getExecutor();
+        this.batchConcurrency = config.getBatchConcurrency();
+        this.maxDifferences = config.getMaxDifferences();
+        this.collectionDiffMode = config.getCollectionDiffMode();
+        this.groupArrayMismatches = config.isGroupArrayMismatches();
+        this.fingerprinter = config.getFingerprinter();
+        this.metricsListener = config.getMetricsListener();
+        this.profiler = config.getProfiler();
+        this.valueRetention = config.getValueRetention();
+        this.rootsRetained = config.isRootsRetained();
+        this.compactResults = config.isCompactResults();
+    }
+
+    public DiffResult diff(Object left, Object right) {
+        return diff(null, left, right);
+    }
+
+    public DiffResult diff(Map identities, Object left, Object right) {
+        return diff(identities, left, right, null);
+    }
+
+    private DiffResult diff(Map identities, Object left, Object right, DiffDeadline deadline) {
+        DiffResult diffResult = newResult(identities, left, right);
+        if (run(left, right, limit(diffResult), diffResult, deadline)) {
+            diffResult.markTruncated();
+        }
+        return diffResult;
+    }
+
+    /**
+     * Diff on the executor, off the calling thread, e.g. to shadow-compare the responses of two backends
+     * without adding to the latency of the request.
+     * The future fails with a RejectedExecutionException if the executor drops the diff because it is overloaded,
+     * and with a TimeoutException once the timeout of the executor is reached, at which point the diff stops.
+     * Cancelling the future stops the diff too.
+     */
+    public CompletableFuture<DiffResult> diffAsync(DiffExecutor executor, Map identities, Object left, Object right) {
+        return executor.submit(deadline -> diff(identities, left, right, deadline));
+    }
+
+    /**
+     * Emit every difference to the listener as soon as it is found, nothing is retained.
+     */
+    public void diff(Object left, Object right, DifferenceListener listener) {
+        run(left, right, limit(listener), null, null);
+    }
+
+    /**
+     * Whether there is any difference, the diff stops at the first one.
+     */
+    public boolean isDifferent(Object left, Object right) {
+        return run(left, right, DiffTraversal.limit(difference -> { }, 0), null, null);
+    }
+
+    private DiffResult newResult(Map identities, Object left, Object right) {
+        return rootsRetained
+            ? new DiffResult(identities, left, right, valueRetention, compactResults)
+            : new DiffResult(identities, null, null, valueRetention, compactResults);
+    }
+
+    /**
+     * With metrics on, they are attached to the result if there is one, and published to the metrics listener.
+     */
+    private boolean run(Object left, Object right, DifferenceListener listener, DiffResult diffResult, DiffDeadline deadline) {
+        if (metricsListener == null) {
+            return DiffTraversal.run(this, listener, left, right, null, deadline);
+        }
+
+        DiffCounters counters = new DiffCounters();
+        boolean truncated = DiffTraversal.run(this, listener, left, right, counters, deadline);
+        DiffMetrics metrics = counters.toMetrics();
+        if (diffResult != null) {
+            diffResult.setMetrics(metrics);
+        }
+        metricsListener.onMetrics(metrics);
+        return truncated;
+    }
+
+    private DifferenceListener limit(DifferenceListener listener) {
+        return DiffTraversal.limit(listener, maxDifferences);
+    }
+
+    /**
+     * Capture left, to diff newer versions against it with {@link #diff(DiffSnapshot, Object)} once left is dropped.
+     * @throws UnsupportedOperationException in the UNORDERED and SEQUENCE collection modes, if a collection without
+     *                                       a key function has items that are not simple or comparable values
+     */
+    public DiffSnapshot snapshot(Object left) {
+        return DiffSnapshot.of(this, left);
+    }
+
+    /**
+     * Diff a snapshot taken by this differ against right, only right is walked and its subtrees with the fingerprint
+     * captured at the same path are skipped.
+     * Left values of the differences are the captured simple values and primitive arrays, else null.
+     */
+    public DiffResult diff(DiffSnapshot snapshot, Object right) {
+        DiffResult diffResult = newResult(null, null, right);
+        if (SnapshotDiff.run(this, snapshot, right, limit(diffResult))) {
+            diffResult.markTruncated();
+        }
+        return diffResult;
+    }
+
+    /**
+     * The configured fingerprinter, else a new one whose cache lives as long as the caller needs it.
+     */
+    Fingerprinter fingerprinter() {
+        return fingerprinter != null ? fingerprinter : new Fingerprinter(classDiffPlans);
+    }
+
+    public DiffResult diff(DiffPair pair) {
+        return diff(pair.getIdentities(), pair.getLeft(), pair.getRight());
+    }
+
+    /**
+     * Diff every pair, results are in the order of the pairs.
+     * With an executor, up to batchConcurrency pairs are diffed ahead of the consumer of the stream.
+     */
+    public Stream<DiffResult> diffAll(Iterable<DiffPair> pairs) {
+        return diffAll(pairs.iterator());
+    }
+
+    /**
+     * Diff every pair, results are in the order of the pairs.
+     * With an executor, up to batchConcurrency pairs are diffed ahead of the consumer of the stream.
+     */
+    public Stream<DiffResult> diffAll(Stream<DiffPair> pairs) {
+        return diffAll(pairs.iterator()).onClose(pairs::close);
+    }
+
+    private Stream<DiffResult> diffAll(Iterator<DiffPair> pairs) {
+        Iterator<DiffResult> results = executor == null ? new SequentialResults(pairs) : new ConcurrentResults(pairs);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private final class SequentialResults implements Iterator<DiffResult> {
+        private final Iterator<DiffPair> pairs;
+
+        SequentialResults(Iterator<DiffPair> pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pairs.hasNext();
+        }
+
+        @Override
+        public DiffResult next() {
+            return diff(pairs.next());
+        }
+    }
+
+    /**
+     * Keeps up to batchConcurrency pairs in flight on the executor, and returns their results in order.
+     */
+    private final class ConcurrentResults implements Iterator<DiffResult> {
+        private final Iterator<DiffPair> pairs;
+        private final Deque<CompletableFuture<DiffResult>> inFlight = new ArrayDeque<>();
+
+        ConcurrentResults(Iterator<DiffPair> pairs) {
+            this.pairs = pairs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            fill();
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public DiffResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return inFlight.poll().join();
+        }
+
+        private void fill() {
+            while (inFlight.size() < batchConcurrency && pairs.hasNext()) {
+                DiffPair pair = pairs.next();
+                inFlight.add(CompletableFuture.supplyAsync(() -> diff(pair), executor));
+            }
+        }
+    }
+}
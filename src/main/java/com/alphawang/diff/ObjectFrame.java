@@ -0,0 +1,47 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+import com.alphawang.diff.plan.ClassDiffPlan;
+import com.alphawang.diff.plan.FieldDiffPlan;
+
+import java.util.List;
+
+/**
+ * Fields of two objects, matched by name.
+ */
+final class ObjectFrame extends DiffFrame {
+    private final DiffTraversal traversal;
+    private final DiffPath path;
+    private final State ignoreState;
+    private final Object left;
+    private final Object right;
+    private final List<FieldDiffPlan> leftFields;
+    private final ClassDiffPlan rightPlan;
+    private final boolean samePlan;
+    private int index;
+
+    ObjectFrame(DiffTraversal traversal, DiffPath path, State ignoreState, Object left, Object right, ClassDiffPlan leftPlan,
+                ClassDiffPlan rightPlan) {
+        this.traversal = traversal;
+        this.path = path;
+        this.ignoreState = ignoreState;
+        this.left = left;
+        this.right = right;
+        this.leftFields = leftPlan.getFields();
+        this.rightPlan = rightPlan;
+        this.samePlan = leftPlan == rightPlan;
+    }
+
+    @Override
+    boolean hasNext() {
+        return index < leftFields.size();
+    }
+
+    @Override
+    void next() {
+        FieldDiffPlan leftField = leftFields.get(index++);
+        FieldDiffPlan rightField = samePlan ? leftField : rightPlan.getField(leftField.getName());
+        traversal.visitField(path, ignoreState, left, right, leftField, rightField);
+    }
+}
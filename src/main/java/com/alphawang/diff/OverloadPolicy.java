@@ -0,0 +1,18 @@
+package com.alphawang.diff;
+
+/**
+ * What a {@link DiffExecutor} does with new diffs when its queue fills up.
+ * Diffs it does not take fail their future with a RejectedExecutionException, the caller is never blocked.
+ */
+public enum OverloadPolicy {
+    /**
+     * Take every diff until the queue is full, then drop the new ones.
+     */
+    DROP,
+    /**
+     * Once the queue is half full, only take one diff out of sampleRate, and drop the new ones when it is full.
+     * The queue then drains while a sample of the traffic is still compared.
+     */
+    SAMPLE,
+    ;
+}
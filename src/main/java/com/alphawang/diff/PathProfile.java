@@ -0,0 +1,21 @@
+package com.alphawang.diff;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Cost of the paths of one template, e.g. /itemList/&#42;/attributes, accumulated by a {@link DiffProfiler}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(staticName = "of")
+public class PathProfile {
+    private final String template;
+    private final long visits;
+    /**
+     * Time spent diffing the paths, including their children.
+     */
+    private final long nanos;
+    private final long differences;
+}
@@ -0,0 +1,50 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+
+/**
+ * Walks the Myers matches with a {@link DiffRules.SequenceWalk}, one item per step.
+ */
+final class SequenceFrame extends DiffFrame implements DiffRules.SequenceVisitor {
+    private final DiffTraversal traversal;
+    private final DiffPath path;
+    private final State ignoreState;
+    private final Object[] leftItems;
+    private final Object[] rightItems;
+    private final DiffRules.SequenceWalk walk;
+
+    SequenceFrame(DiffTraversal traversal, DiffPath path, State ignoreState, Object[] leftItems, Object[] rightItems, int[] leftMatches) {
+        this.traversal = traversal;
+        this.path = path;
+        this.ignoreState = ignoreState;
+        this.leftItems = leftItems;
+        this.rightItems = rightItems;
+        this.walk = new DiffRules.SequenceWalk(leftItems.length, rightItems.length, leftMatches);
+    }
+
+    @Override
+    boolean hasNext() {
+        return walk.hasNext();
+    }
+
+    @Override
+    void next() {
+        walk.next(this);
+    }
+
+    @Override
+    public void pair(int leftIndex, int rightIndex) {
+        traversal.visitIndex(path, ignoreState, leftIndex, leftItems[leftIndex], rightItems[rightIndex]);
+    }
+
+    @Override
+    public void removed(int leftIndex) {
+        traversal.reportRemovedItem(path, ignoreState, leftIndex, leftItems[leftIndex]);
+    }
+
+    @Override
+    public void added(int rightIndex) {
+        traversal.reportAddedItem(path, ignoreState, rightIndex, rightItems[rightIndex]);
+    }
+}
@@ -0,0 +1,380 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.DiffSnapshot.Node;
+import com.alphawang.diff.ValueType.Kind;
+import com.alphawang.diff.path.DiffPath;
+import com.alphawang.diff.path.IgnorePathMatcher;
+import com.alphawang.diff.path.IgnorePathMatcher.State;
+import com.alphawang.diff.plan.ClassDiffPlan;
+import com.alphawang.diff.plan.FieldDiffPlan;
+import com.alphawang.diff.type.TypeDiffer;
+import com.alphawang.diff.util.IdentityPairSet;
+import com.alphawang.diff.util.PrimitiveArrays;
+import com.google.common.base.Function;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.alphawang.diff.Difference.DifferenceType.NULL_VS_NONNULL;
+import static com.alphawang.diff.Difference.DifferenceType.SIZE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.TYPE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.VALUE_NOT_EQUALS;
+
+/**
+ * Diff of a {@link DiffSnapshot} against a right object graph, with the rules of {@link DiffTraversal}.
+ * Only right is walked: each of its paths is compared with the node captured at the same path,
+ * and subtrees with the fingerprint of their node are skipped.
+ * A node shared by several paths is diffed against the right value at each of them, and like in {@link DiffTraversal},
+ * a pair of a node and a right object is only diffed at the first path it is met.
+ * <p>
+ * Values with a {@link TypeDiffer} are only compared with it if they are simple or comparable values.
+ * Collections without a key function, or whose right items the key function cannot index, are paired by index,
+ * or, in the UNORDERED and SEQUENCE modes, by the item keys kept by the snapshot: equals of simple and comparable items,
+ * and the fingerprint of the others.
+ * The left values of the differences are the values kept by the snapshot, and a {@link ValueSummary} of the others.
+ */
+@Slf4j
+final class SnapshotDiff {
+
+    private final ObjectDiffer differ;
+    private final IgnorePathMatcher ignoreMatcher;
+    private final DiffSnapshot snapshot;
+    private final DifferenceListener listener;
+    private final Fingerprinter fingerprinter;
+    private final IdentityPairSet visited = IdentityPairSet.create();
+    private final DiffRules.Reporter reporter = this::report;
+    private final ArrayDeque<Runnable> stack = new ArrayDeque<>();
+
+    private SnapshotDiff(ObjectDiffer differ, DiffSnapshot snapshot, DifferenceListener listener) {
+        this.differ = differ;
+        this.ignoreMatcher = differ.getIgnoreMatcher();
+        this.snapshot = snapshot;
+        this.listener = listener;
+        this.fingerprinter = differ.fingerprinter();
+    }
+
+    /**
+     * @return whether the diff stopped because the listener reached its limit
+     */
+    static boolean run(ObjectDiffer differ, DiffSnapshot snapshot, Object right, DifferenceListener listener) {
+        try {
+            new SnapshotDiff(differ, snapshot, listener).diff(right);
+        } catch (DifferenceLimitReached e) {
+            return true;
+        } catch (Exception e) {
+            log.error("Diff Object ERROR.", e);
+        }
+        return false;
+    }
+
+    private void diff(Object right) {
+        stack.push(new Step(DiffPath.ROOT, DiffPath.ROOT, ignoreMatcher.root(), right));
+        while (!stack.isEmpty()) {
+            stack.pop().run();
+        }
+    }
+
+    /**
+     * @param leftPath path of the left value in the snapshot, the node of an object shared with another path is under that path
+     */
+    private void visit(DiffPath path, DiffPath leftPath, State ignoreState, Object right) {
+        if (ignoreState.isIgnored()) {
+            return;
+        }
+
+        Node left = snapshot.get(leftPath.toString());
+        if (left == null) {
+            return;
+        }
+
+        if (left.getKind() == null || right == null) {
+            if (left.getKind() != null || right != null) {
+                report(path, NULL_VS_NONNULL, null, left.reportedValue(), right);
+            }
+            return;
+        }
+
+        if (left.getKind() == Kind.SIMPLE || left.getKind() == Kind.COMPARABLE) {
+            diffValue(path, left.getKind(), left.getValue(), right);
+            return;
+        }
+
+        ValueType type = differ.getValueTypes().get(right.getClass());
+        if (left.getKind() != type.getKind()) {
+            report(path, TYPE_NOT_SAME, null, left.reportedValue(), right);
+            return;
+        }
+        if (left.getFingerprint() == fingerprinter.fingerprint(right) || !visited.add(left, right)) {
+            return;
+        }
+
+        switch (left.getKind()) {
+            case MAP:
+                Map<String, Object> rightEntries = new LinkedHashMap<>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) right).entrySet()) {
+                    rightEntries.put(String.valueOf(entry.getKey()), entry.getValue());
+                }
+                visitEntries(path, ignoreState, left, rightEntries);
+                break;
+            case COLLECTION:
+                visitCollection(path, ignoreState, left, (Collection<?>) right);
+                break;
+            case ARRAY:
+                visitArray(path, ignoreState, left, right);
+                break;
+            default:
+                visitObject(path, ignoreState, left, right);
+                break;
+        }
+    }
+
+    /**
+     * Same steps as the dispatch of a simple or comparable left value in {@link DiffTraversal}.
+     */
+    private void diffValue(DiffPath path, Kind kind, Object left, Object right) {
+        ValueType type = differ.getValueTypes().get(left.getClass());
+        if (!type.isEqualsSkipped() && left.equals(right)) {
+            return;
+        }
+
+        boolean equal;
+        if (type.getDiffer() != null && type.getDiffer() == differ.getValueTypes().get(right.getClass()).getDiffer()) {
+            equal = type.getDiffer().isEqual(left, right);
+        } else if (kind == Kind.SIMPLE) {
+            equal = left.equals(right);
+        } else {
+            equal = ((Comparable) left).compareTo(right) == 0;
+        }
+        if (!equal) {
+            report(path, VALUE_NOT_EQUALS, null, left, right);
+        }
+    }
+
+    private void visitObject(DiffPath path, State ignoreState, Node left, Object right) {
+        ClassDiffPlan leftPlan = differ.getClassDiffPlans().get(left.getType());
+        ClassDiffPlan rightPlan = left.getType() == right.getClass() ? leftPlan : differ.getClassDiffPlans().get(right.getClass());
+        List<Step> children = new ArrayList<>(leftPlan.getFields().size());
+        for (FieldDiffPlan leftField : leftPlan.getFields()) {
+            FieldDiffPlan rightField = rightPlan.getField(leftField.getName());
+            if (rightField != null && leftField.isAccessible() && rightField.isAccessible()) {
+                children.add(child(path.child(leftField.getName()), left.getPath().child(leftField.getName()), ignoreState, rightField.get(right)));
+            }
+        }
+        pushAll(children);
+    }
+
+    /**
+     * Entries of a map or of a keyed collection, by path segment.
+     */
+    private void visitEntries(DiffPath path, State ignoreState, Node left, Map<String, Object> right) {
+        List<Step> children = new ArrayList<>(left.getKeys().size());
+        for (String key : left.getKeys()) {
+            DiffPath entryPath = path.key(key);
+            DiffPath leftEntryPath = left.getPath().key(key);
+            State entryIgnoreState = ignoreMatcher.child(ignoreState, entryPath);
+            if (right.containsKey(key)) {
+                children.add(new Step(entryPath, leftEntryPath, entryIgnoreState, right.get(key)));
+            } else {
+                DiffRules.reportRemovedKey(entryPath, entryIgnoreState, leftValue(leftEntryPath), reporter);
+            }
+        }
+        for (Map.Entry<String, Object> entry : right.entrySet()) {
+            if (!left.getKeys().contains(entry.getKey())) {
+                DiffRules.reportAddedKey(ignoreMatcher, path, ignoreState, entry.getKey(), entry.getValue(), reporter);
+            }
+        }
+        pushAll(children);
+    }
+
+    private void visitCollection(DiffPath path, State ignoreState, Node left, Collection<?> right) {
+        if (left.getSize() == 0 || right.isEmpty()) {
+            if (left.getSize() != 0 || !right.isEmpty()) {
+                report(path, NULL_VS_NONNULL, null, left.reportedValue(), right);
+            }
+            return;
+        }
+
+        if (left.getKeys() != null) {
+            Map<String, Object> rightEntries = indexByKey(left.getItemType(), right);
+            if (rightEntries != null) {
+                visitEntries(path, ignoreState, left, rightEntries);
+                return;
+            }
+        }
+
+        Object[] rightItems = right.toArray();
+        switch (differ.getCollectionDiffMode()) {
+            case UNORDERED:
+                DiffRules.diffUnordered(ignoreMatcher, path, ignoreState, (Object[]) left.getValue(), itemKeys(rightItems),
+                    leftItems(left), rightItems, null, reporter);
+                break;
+            case SEQUENCE:
+                Object[] leftKeys = (Object[]) left.getValue();
+                int[] leftMatches = DiffRules.matchSequence(leftKeys, itemKeys(rightItems), null);
+                stack.push(new SequenceStep(path, ignoreState, left, rightItems, leftMatches));
+                break;
+            default:
+                if (left.getSize() != rightItems.length) {
+                    report(path, SIZE_NOT_SAME, DiffRules.sizeSummary(left.getSize(), rightItems.length), left.reportedValue(), right);
+                    return;
+                }
+                pushIndexes(path, left, ignoreState, rightItems);
+                break;
+        }
+    }
+
+    private Object[] itemKeys(Object[] items) {
+        Object[] keys = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            keys[i] = DiffSnapshot.itemKey(differ, fingerprinter, items[i]);
+        }
+        return keys;
+    }
+
+    /**
+     * What is reported of the left items.
+     */
+    private Object[] leftItems(Node left) {
+        Object[] items = new Object[left.getSize()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = leftValue(left.itemPath(i));
+        }
+        return items;
+    }
+
+    /**
+     * @return the right items by the path segment of their key, or null if the key function cannot index them
+     */
+    private Map<String, Object> indexByKey(Class<?> itemClass, Collection<?> right) {
+        Function keyFunction = differ.getCollectionItemKeyFunctions().get(itemClass).orElse(null);
+        Map<String, Object> entries = new LinkedHashMap<>();
+        try {
+            for (Object item : right) {
+                if (entries.put(String.valueOf(keyFunction.apply(item)), item) != null) {
+                    return null;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to transform collection. collection={}, function={}", right, keyFunction, e);
+            return null;
+        }
+        return entries;
+    }
+
+    private void visitArray(DiffPath path, State ignoreState, Node left, Object right) {
+        int rightLength = Array.getLength(right);
+        if (left.getSize() != rightLength) {
+            report(path, SIZE_NOT_SAME, DiffRules.sizeSummary(left.getSize(), rightLength), left.reportedValue(), right);
+            return;
+        }
+
+        Object leftArray = left.getValue();
+        boolean rightPrimitive = right.getClass().getComponentType().isPrimitive();
+        if (leftArray == null && !rightPrimitive) {
+            pushIndexes(path, left, ignoreState, (Object[]) right);
+        } else if (leftArray != null && PrimitiveArrays.isSameType(leftArray, right)) {
+            DiffRules.diffPrimitiveArray(ignoreMatcher, differ.isGroupArrayMismatches(), path, ignoreState, leftArray, right, null, reporter);
+        } else {
+            report(path, TYPE_NOT_SAME, null, left.reportedValue(), right);
+        }
+    }
+
+    private void report(DiffPath path, Difference.DifferenceType type, String summary, Object left, Object right) {
+        listener.onDifference(Difference.of(path.toString(), type, summary, left, right));
+    }
+
+    private void pushIndexes(DiffPath path, Node left, State ignoreState, Object[] rightItems) {
+        for (int i = rightItems.length - 1; i >= 0; i--) {
+            stack.push(child(path.child(i), left.itemPath(i), ignoreState, rightItems[i]));
+        }
+    }
+
+    /**
+     * Push in reverse, so that children are diffed in order.
+     */
+    private void pushAll(List<Step> children) {
+        for (int i = children.size() - 1; i >= 0; i--) {
+            stack.push(children.get(i));
+        }
+    }
+
+    private Step child(DiffPath childPath, DiffPath leftChildPath, State ignoreState, Object right) {
+        return new Step(childPath, leftChildPath, ignoreMatcher.child(ignoreState, childPath), right);
+    }
+
+    private Object leftValue(DiffPath leftPath) {
+        Node node = snapshot.get(leftPath.toString());
+        return node == null ? null : node.reportedValue();
+    }
+
+    /**
+     * Right value still to be diffed at a path, against the node at leftPath.
+     */
+    private final class Step implements Runnable {
+        private final DiffPath path;
+        private final DiffPath leftPath;
+        private final State ignoreState;
+        private final Object right;
+
+        Step(DiffPath path, DiffPath leftPath, State ignoreState, Object right) {
+            this.path = path;
+            this.leftPath = leftPath;
+            this.ignoreState = ignoreState;
+            this.right = right;
+        }
+
+        @Override
+        public void run() {
+            visit(path, leftPath, ignoreState, right);
+        }
+    }
+
+    /**
+     * Walks the Myers matches of the item keys one step at a time, like the SequenceFrame of {@link DiffTraversal}:
+     * each step is pushed back under the items it pairs, so they are diffed before the next step.
+     */
+    private final class SequenceStep implements Runnable, DiffRules.SequenceVisitor {
+        private final DiffPath path;
+        private final State ignoreState;
+        private final Node left;
+        private final Object[] rightItems;
+        private final DiffRules.SequenceWalk walk;
+
+        SequenceStep(DiffPath path, State ignoreState, Node left, Object[] rightItems, int[] leftMatches) {
+            this.path = path;
+            this.ignoreState = ignoreState;
+            this.left = left;
+            this.rightItems = rightItems;
+            this.walk = new DiffRules.SequenceWalk(left.getSize(), rightItems.length, leftMatches);
+        }
+
+        @Override
+        public void run() {
+            if (walk.hasNext()) {
+                stack.push(this);
+                walk.next(this);
+            }
+        }
+
+        @Override
+        public void pair(int leftIndex, int rightIndex) {
+            stack.push(child(path.child(leftIndex), left.itemPath(leftIndex), ignoreState, rightItems[rightIndex]));
+        }
+
+        @Override
+        public void removed(int leftIndex) {
+            DiffRules.reportRemovedItem(ignoreMatcher, path, ignoreState, leftIndex, leftValue(left.itemPath(leftIndex)), reporter);
+        }
+
+        @Override
+        public void added(int rightIndex) {
+            DiffRules.reportAddedItem(ignoreMatcher, path, ignoreState, rightIndex, rightItems[rightIndex], reporter);
+        }
+    }
+}
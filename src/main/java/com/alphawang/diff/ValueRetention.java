@@ -0,0 +1,65 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.util.ReflectionUtils;
+
+/**
+ * What a {@link DiffResult} keeps of the left and right values of its differences, see {@link ObjectDiff#withValueRetention}.
+ * Listeners always get the values themselves.
+ */
+public enum ValueRetention {
+    /**
+     * The values themselves, including whole collections for SIZE_NOT_SAME or NULL_VS_NONNULL.
+     */
+    FULL {
+        @Override
+        Object retain(Object value) {
+            return value;
+        }
+    },
+    /**
+     * Simple values other than long strings as they are, anything else as a {@link ValueSummary}.
+     */
+    SUMMARY {
+        @Override
+        Object retain(Object value) {
+            boolean small = ReflectionUtils.isSimpleClass(value) && !(value instanceof String && ((String) value).length() > ValueSummary.PREVIEW_CHARS)
+                || value instanceof Enum || value instanceof ValueSummary;
+            return small ? value : ValueSummary.of(value);
+        }
+    },
+    /**
+     * The values through weak references: they read as null once nothing else references them.
+     */
+    WEAK {
+        @Override
+        Object retain(Object value) {
+            return new Difference.WeakValue(value);
+        }
+    },
+    /**
+     * No values, only the path, type and summary of the differences.
+     */
+    NONE {
+        @Override
+        Object retain(Object value) {
+            return null;
+        }
+    };
+
+    /**
+     * @param value not null
+     */
+    abstract Object retain(Object value);
+
+    Difference retain(Difference difference) {
+        if (this == FULL) {
+            return difference;
+        }
+        return Difference.of(difference.getPath(), difference.getType(), difference.getSummary(),
+            retainNullable(difference.getLeftValue()), retainNullable(difference.getRightValue()));
+    }
+
+    private Object retainNullable(Object value) {
+        return value == null ? null : retain(value);
+    }
+}
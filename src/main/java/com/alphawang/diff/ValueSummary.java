@@ -0,0 +1,90 @@
+package com.alphawang.diff;
+
+import lombok.Getter;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stand-in for a value of a {@link Difference} with {@link ValueRetention#SUMMARY}: its class, size and the start of its string form.
+ * The preview of collections, maps and arrays is built element by element, so it stays bounded whatever their size.
+ */
+@Getter
+public final class ValueSummary {
+
+    public static final int PREVIEW_CHARS = 200;
+    private static final String MORE = "...";
+
+    private final String type;
+    /**
+     * Number of elements of a collection, map or array, length of a string, else -1.
+     */
+    private final int size;
+    private final String preview;
+
+    private ValueSummary(String type, int size, String preview) {
+        this.type = type;
+        this.size = size;
+        this.preview = preview;
+    }
+
+    static ValueSummary of(Object value) {
+        String type = value.getClass().getName();
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            return new ValueSummary(type, collection.size(), preview(collection.iterator(), "[", "]"));
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return new ValueSummary(type, map.size(), preview(map.entrySet().iterator(), "{", "}"));
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            StringBuilder preview = new StringBuilder("[");
+            for (int i = 0; i < length && preview.length() < PREVIEW_CHARS; i++) {
+                append(preview.append(i == 0 ? "" : ", "), Array.get(value, i));
+            }
+            return new ValueSummary(type, length, close(preview, "]"));
+        } else if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            return new ValueSummary(type, chars.length(), truncate(chars));
+        }
+        return new ValueSummary(type, -1, truncate(String.valueOf(value)));
+    }
+
+    /**
+     * Summary of a value that is not there anymore, e.g. not kept by a {@link DiffSnapshot}: only its class and size.
+     */
+    static ValueSummary of(Class<?> type, int size) {
+        return new ValueSummary(type.getName(), size, size < 0 ? type.getName() : type.getName() + "(" + size + ")");
+    }
+
+    private static String preview(Iterator<?> elements, String open, String close) {
+        StringBuilder preview = new StringBuilder(open);
+        for (boolean first = true; elements.hasNext() && preview.length() < PREVIEW_CHARS; first = false) {
+            append(preview.append(first ? "" : ", "), elements.next());
+        }
+        return close(preview, close);
+    }
+
+    /**
+     * Only what fits in the preview of the element's string is copied, one more char telling that it is cut.
+     */
+    private static void append(StringBuilder preview, Object element) {
+        String chars = String.valueOf(element);
+        preview.append(chars, 0, Math.max(0, Math.min(chars.length(), PREVIEW_CHARS + 1 - preview.length())));
+    }
+
+    private static String close(StringBuilder preview, String close) {
+        return preview.length() < PREVIEW_CHARS ? preview.append(close).toString() : truncate(preview);
+    }
+
+    private static String truncate(CharSequence chars) {
+        return chars.length() <= PREVIEW_CHARS ? chars.toString() : chars.subSequence(0, PREVIEW_CHARS) + MORE;
+    }
+
+    @Override
+    public String toString() {
+        return preview;
+    }
+}
@@ -0,0 +1,80 @@
+package com.alphawang.diff;
+
+import com.alphawang.diff.type.TypeDiffer;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import static com.alphawang.diff.util.ReflectionUtils.isSimpleClass;
+
+/**
+ * How the values of one runtime class are diffed, resolved once per class by {@link ObjectDiffer}.
+ */
+@Getter
+final class ValueType {
+
+    enum Kind {
+        MAP,
+        COLLECTION,
+        ARRAY,
+        SIMPLE,
+        COMPARABLE,
+        OBJECT,
+    }
+
+    private final Kind kind;
+    /**
+     * Registered differ of the class or its closest supertype, or null.
+     */
+    private final TypeDiffer differ;
+    /**
+     * Whether equals is skipped before the diff, see {@link ObjectDiff#withEqualsSkippedClasses}.
+     */
+    private final boolean equalsSkipped;
+
+    private ValueType(Kind kind, TypeDiffer differ, boolean equalsSkipped) {
+        this.kind = kind;
+        this.differ = differ;
+        this.equalsSkipped = equalsSkipped;
+    }
+
+    static ValueType of(Class<?> type, Map<Class, TypeDiffer> typeDiffers, Set<Class> equalsSkippedClasses) {
+        boolean equalsSkipped = equalsSkippedClasses.stream().anyMatch(clazz -> clazz.isAssignableFrom(type));
+        return new ValueType(kindOf(type), differ(type, typeDiffers), equalsSkipped);
+    }
+
+    static Kind kindOf(Class<?> type) {
+        if (Map.class.isAssignableFrom(type)) {
+            return Kind.MAP;
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return Kind.COLLECTION;
+        } else if (type.isArray()) {
+            return Kind.ARRAY;
+        } else if (isSimpleClass(type)) {
+            return Kind.SIMPLE;
+        } else if (Comparable.class.isAssignableFrom(type)) {
+            return Kind.COMPARABLE;
+        }
+        return Kind.OBJECT;
+    }
+
+    /**
+     * The differ of the class or its closest superclass, else of an interface it implements.
+     */
+    private static TypeDiffer differ(Class<?> type, Map<Class, TypeDiffer> typeDiffers) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            TypeDiffer differ = typeDiffers.get(clazz);
+            if (differ != null) {
+                return differ;
+            }
+        }
+        for (Map.Entry<Class, TypeDiffer> entry : typeDiffers.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -4,11 +4,21 @@ import com.alphawang.diff.DiffResult;
 import com.alphawang.diff.Difference;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Maps;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import static com.alphawang.diff.util.ReflectionUtils.getCollectionItemClass;
 import static com.alphawang.diff.util.ReflectionUtils.getMapValueClass;
@@ -17,7 +27,10 @@ import static com.alphawang.diff.util.ReflectionUtils.getValue;
 public class DiffResultFormatter {
 
     private static final String EMPTY = "";
+    private static final String NULL = "{}";
     private static final String NEW_LINE = "\n";
+    private static final String SEPARATOR = ", ";
+    private static final String TRUNCATED = "...";
 
     public static String format(DiffResult diffResult, Map<Class, Function> converters) {
         if (diffResult == null || !diffResult.hasDifference()) {
@@ -25,13 +38,57 @@ public class DiffResultFormatter {
         }
 
         StringBuilder sb = new StringBuilder();
-        sb.append(formatIdentities(diffResult));
-        sb.append(NEW_LINE);
-        sb.append(formatDifferences(diffResult, converters));
-
+        try {
+            format(diffResult, converters, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return sb.toString();
     }
 
+    /**
+     * Write the report difference by difference, nothing but the current value is built in memory.
+     */
+    public static void format(DiffResult diffResult, Map<Class, Function> converters, Appendable out) throws IOException {
+        format(diffResult, converters, FormatOptions.unlimited(), out);
+    }
+
+    /**
+     * Write the report difference by difference, each value cut to the limits of the options.
+     */
+    public static void format(DiffResult diffResult, Map<Class, Function> converters, FormatOptions options, Appendable out) throws IOException {
+        if (diffResult == null || !diffResult.hasDifference()) {
+            return;
+        }
+
+        out.append(formatIdentities(diffResult)).append(NEW_LINE);
+        for (Difference difference : diffResult.getDifferences().values()) {
+            formatDifference(difference, converters, options, out);
+            out.append(NEW_LINE);
+        }
+    }
+
+    /**
+     * Write the report as UTF-8 to the stream, which is flushed but not closed.
+     * Not an overload of format, which a PrintStream, both an OutputStream and an Appendable, would make ambiguous.
+     */
+    public static void formatTo(DiffResult diffResult, Map<Class, Function> converters, FormatOptions options, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        format(diffResult, converters, options, writer);
+        writer.flush();
+    }
+
+    /**
+     * Write the string of one value cut to the limits of the options, maps, collections and arrays element by element.
+     */
+    public static void formatValue(Object value, FormatOptions options, Appendable out) throws IOException {
+        BoundedAppendable bounded = new BoundedAppendable(out, options.getMaxValueChars());
+        writeValue(value, null, options.getMaxElements(), Collections.newSetFromMap(new IdentityHashMap<>()), bounded);
+        if (bounded.isFull()) {
+            out.append(TRUNCATED);
+        }
+    }
+
     public static String formatIdentities(DiffResult diffResult) {
         Map identities = diffResult.getIdentities();
         if (identities == null || identities.size() <= 0) {
@@ -41,90 +98,193 @@ public class DiffResultFormatter {
     }
 
     public static String formatDifferences(DiffResult diffResult, Map<Class, Function> toStringFunctions) {
-        Map<String, Difference> differenceMap = diffResult.getDifferences();
         StringBuilder sb = new StringBuilder();
-        for (Map.Entry<String, Difference> entry : differenceMap.entrySet()) {
-            sb.append(formatDifference(entry.getValue(), toStringFunctions)).append(NEW_LINE);
+        try {
+            for (Difference difference : diffResult.getDifferences().values()) {
+                formatDifference(difference, toStringFunctions, FormatOptions.unlimited(), sb);
+                sb.append(NEW_LINE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
         return sb.toString();
     }
 
-    private static String formatDifference(Difference difference, Map<Class, Function> toStringFunctions) {
+    private static void formatDifference(Difference difference, Map<Class, Function> toStringFunctions, FormatOptions options, Appendable out) throws IOException {
         if (difference == null) {
-            return null;
+            return;
         }
 
-        return getSummaryMsg(difference) + getDetailMsg(difference, toStringFunctions);
+        out.append("[").append(difference.getPath()).append("] ")
+            .append(String.valueOf(difference.getType()))
+            .append(" - ")
+            .append(difference.getSummary() == null ? EMPTY : difference.getSummary());
+
+        out.append(NEW_LINE).append(" [L] ");
+        formatObject(difference.getLeftValue(), toStringFunctions, options, out);
+        out.append(NEW_LINE).append(" [R] ");
+        formatObject(difference.getRightValue(), toStringFunctions, options, out);
     }
 
-    private static String getSummaryMsg(Difference difference) {
-        return new StringBuilder()
-            .append("[").append(difference.getPath()).append("] ")
-            .append(difference.getType())
-            .append(" - ")
-            .append(defaultString(difference.getSummary()))
-            .toString();
-    }
-
-    private static String getDetailMsg(Difference difference, Map<Class, Function> toStringFunctions) {
-        return new StringBuilder()
-            .append(NEW_LINE)
-            .append(" [L] ")
-            .append(formatObject(difference.getLeftValue(), toStringFunctions))
-            .append(NEW_LINE)
-            .append(" [R] ")
-            .append(formatObject(difference.getRightValue(), toStringFunctions))
-            .toString();
-    }
-
-    private static String formatObject(Object object, Map<Class, Function> toStringFunctions) {
-        if (object instanceof Map) {
-            Map map = (Map) object;
-            if (isEmpty(map)) {
-                return EMPTY;
-            }
+    private static void formatObject(Object object, Map<Class, Function> toStringFunctions, FormatOptions options, Appendable out) throws IOException {
+        BoundedAppendable value = new BoundedAppendable(out, options.getMaxValueChars());
+        writeObject(object, toStringFunctions, options.getMaxElements(), value);
+        if (value.isFull()) {
+            out.append(TRUNCATED);
+        }
+    }
 
-            Class valueClass = getMapValueClass(map);
-            Function valueFunction = getValue(toStringFunctions, valueClass);
-            if (valueFunction != null) {
-                map = Maps.transformValues(map, valueFunction);
-            }
+    private static void writeObject(Object object, Map<Class, Function> toStringFunctions, int maxElements, BoundedAppendable out) throws IOException {
+        if (object instanceof Map && ((Map) object).isEmpty() || object instanceof Collection && ((Collection) object).isEmpty()) {
+            return;
+        }
+        if (isComposite(object)) {
+            writeValue(object, toStringFunctions, maxElements, Collections.newSetFromMap(new IdentityHashMap<>()), out);
+            return;
+        }
+
+        Function itemFunction = object == null ? null : getValue(toStringFunctions, object.getClass());
+        Object value = itemFunction == null ? object : itemFunction.apply(object);
+        writeLeaf(value == null ? NULL : value, out);
+    }
+
+    /**
+     * Maps, collections and arrays are written element by element with what is left of the limit, down to their leaves,
+     * so that only the leaves are turned into strings, and only until the limit is reached.
+     * A map or collection containing one of its enclosing ones is written as "(this Map)" or "(this Collection)", like their toString.
+     */
+    private static void writeValue(Object value, Map<Class, Function> toStringFunctions, int maxElements, Set<Object> enclosing,
+                                   BoundedAppendable out) throws IOException {
+        if (!isComposite(value)) {
+            writeLeaf(value, out);
+            return;
+        }
+        if (!enclosing.add(value)) {
+            out.append(value instanceof Map ? "(this Map)" : "(this Collection)");
+            return;
+        }
+        writeComposite(value, toStringFunctions, maxElements, enclosing, out);
+        enclosing.remove(value);
+    }
+
+    private static void writeComposite(Object value, Map<Class, Function> toStringFunctions, int maxElements, Set<Object> enclosing,
+                                       BoundedAppendable out) throws IOException {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map) value;
+            Function valueFunction = getValue(toStringFunctions, getMapValueClass(map));
+            Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+            writeElements(entries, map.size(), maxElements, "{", "}", out, entry -> {
+                writeValue(entry.getKey(), toStringFunctions, maxElements, enclosing, out);
+                out.append("=");
+                writeValue(convert(valueFunction, entry.getValue()), toStringFunctions, maxElements, enclosing, out);
+            });
+            return;
+        }
 
-            return map.toString();
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection) value;
+            Function itemFunction = getValue(toStringFunctions, getCollectionItemClass(collection));
+            writeElements(collection.iterator(), collection.size(), maxElements, "[", "]", out,
+                item -> writeValue(convert(itemFunction, item), toStringFunctions, maxElements, enclosing, out));
+            return;
         }
 
-        if (object instanceof Collection) {
-            Collection collection = (Collection) object;
-            if (isEmpty(collection)) {
-                return EMPTY;
+        int length = Array.getLength(value);
+        Iterator<Object> items = new Iterator<Object>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
             }
 
-            Class itemClass = getCollectionItemClass(collection);
-            Function itemFunction = getValue(toStringFunctions, itemClass);
-            if (itemFunction != null) {
-                return Iterables.transform(collection, itemFunction).toString();
+            @Override
+            public Object next() {
+                return Array.get(value, index++);
             }
+        };
+        writeElements(items, length, maxElements, "[", "]", out, item -> writeValue(item, toStringFunctions, maxElements, enclosing, out));
+    }
 
-            return collection.toString();
+    /**
+     * Strings and other char sequences are cut by the limit as they are copied, only other leaves are turned into strings.
+     */
+    private static void writeLeaf(Object value, BoundedAppendable out) throws IOException {
+        if (out.isFull()) {
+            return;
         }
+        out.append(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+    }
 
-        Function itemFunction = getValue(toStringFunctions, object.getClass());
-        if (itemFunction != null) {
-            return defaultString(itemFunction.apply(object));
-        }
+    private static boolean isComposite(Object value) {
+        return value instanceof Map || value instanceof Collection || value != null && value.getClass().isArray();
+    }
 
-        return defaultString(object);
+    private static Object convert(Function function, Object value) {
+        return function == null ? value : function.apply(value);
     }
 
-    private static String defaultString(Object value) {
-        return value == null ? "{}" : value.toString();
+    private static <T> void writeElements(Iterator<T> elements, int size, int maxElements, String open, String close,
+                                          BoundedAppendable out, ElementWriter<T> writer) throws IOException {
+        out.append(open);
+        int written = 0;
+        while (elements.hasNext() && written < maxElements && !out.isFull()) {
+            if (written > 0) {
+                out.append(SEPARATOR);
+            }
+            writer.write(elements.next());
+            written++;
+        }
+        if (written < size && !out.isFull()) {
+            out.appendMarker((written > 0 ? SEPARATOR : EMPTY) + TRUNCATED + " " + (size - written) + " more");
+        }
+        out.appendMarker(close);
     }
-    
-    private static boolean isEmpty(Map map) {
-        return map == null || map.size() == 0;
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(T element) throws IOException;
     }
 
-    private static boolean isEmpty(Collection collection) {
-        return collection == null || collection.size() == 0;
+    /**
+     * Passes at most limit characters to the delegate.
+     */
+    private static final class BoundedAppendable {
+        private final Appendable delegate;
+        private int remaining;
+        private boolean full;
+
+        BoundedAppendable(Appendable delegate, int limit) {
+            this.delegate = delegate;
+            this.remaining = limit;
+        }
+
+        BoundedAppendable append(CharSequence chars) throws IOException {
+            if (full) {
+                return this;
+            }
+            if (chars.length() > remaining) {
+                delegate.append(chars, 0, remaining);
+                remaining = 0;
+                full = true;
+                return this;
+            }
+            delegate.append(chars);
+            remaining -= chars.length();
+            return this;
+        }
+
+        /**
+         * Small fixed text, e.g. a closing bracket, written whatever the limit unless the value was already cut.
+         */
+        void appendMarker(String marker) throws IOException {
+            if (!full) {
+                delegate.append(marker);
+            }
+        }
+
+        boolean isFull() {
+            return full;
+        }
     }
 }
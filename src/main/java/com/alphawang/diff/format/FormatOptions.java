@@ -0,0 +1,41 @@
+package com.alphawang.diff.format;
+
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+
+/**
+ * Limits of each value written by {@link DiffResultFormatter}, so a report costs bounded memory whatever the values.
+ */
+@Getter
+public class FormatOptions {
+
+    private static final FormatOptions UNLIMITED = new FormatOptions(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * Characters written per value, the rest is cut and marked with "...".
+     */
+    private final int maxValueChars;
+    /**
+     * Entries written per map, collection or array, the rest is counted as "... n more".
+     */
+    private final int maxElements;
+
+    private FormatOptions(int maxValueChars, int maxElements) {
+        this.maxValueChars = maxValueChars;
+        this.maxElements = maxElements;
+    }
+
+    public static FormatOptions unlimited() {
+        return UNLIMITED;
+    }
+
+    public FormatOptions withMaxValueChars(int maxValueChars) {
+        Preconditions.checkArgument(maxValueChars > 0, "maxValueChars must be positive");
+        return new FormatOptions(maxValueChars, maxElements);
+    }
+
+    public FormatOptions withMaxElements(int maxElements) {
+        Preconditions.checkArgument(maxElements >= 0, "maxElements must not be negative");
+        return new FormatOptions(maxValueChars, maxElements);
+    }
+}
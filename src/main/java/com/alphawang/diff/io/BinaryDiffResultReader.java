@@ -0,0 +1,120 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.alphawang.diff.Difference.DifferenceType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the log of a {@link BinaryDiffResultWriter}, one record at a time, one chunk of differences in memory at a time.
+ */
+public class BinaryDiffResultReader implements DiffResultReader {
+
+    private static final DifferenceType[] TYPES = DifferenceType.values();
+
+    private final ChannelInput input;
+    private final List<String> paths = new ArrayList<>();
+    private final int maxInternedPaths;
+
+    public BinaryDiffResultReader(ReadableByteChannel channel) throws IOException {
+        this.input = new ChannelInput(channel, ChannelOutput.DEFAULT_BATCH_SIZE);
+
+        byte[] magic = new byte[BinaryDiffResultWriter.MAGIC.length];
+        input.require(magic.length + 1);
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) input.readByte();
+        }
+        if (!Arrays.equals(magic, BinaryDiffResultWriter.MAGIC)) {
+            throw new IOException("Not a binary diff log");
+        }
+        int version = input.readByte();
+        if (version != BinaryDiffResultWriter.VERSION) {
+            throw new IOException("Unsupported diff log version " + version);
+        }
+        this.maxInternedPaths = input.readVarintOrEnd();
+        if (maxInternedPaths < 0) {
+            throw new EOFException("Truncated diff log");
+        }
+    }
+
+    public static BinaryDiffResultReader open(Path path) throws IOException {
+        return new BinaryDiffResultReader(FileChannel.open(path, READ));
+    }
+
+    @Override
+    public DiffResult read() throws IOException {
+        int length = input.readVarintOrEnd();
+        if (length < 0) {
+            return null;
+        }
+        input.require(length);
+
+        boolean truncated = input.readByte() != 0;
+        int identityCount = input.readVarint();
+        Map<String, String> identities = null;
+        if (identityCount > 0) {
+            identities = new LinkedHashMap<>();
+            for (int i = 0; i < identityCount; i++) {
+                identities.put(input.readString(), input.readString());
+            }
+        }
+
+        DiffResult diffResult = new DiffResult(identities, null, null);
+        for (int chunkLength = readChunkVarint(); chunkLength > 0; chunkLength = readChunkVarint()) {
+            int differenceCount = readChunkVarint();
+            input.require(chunkLength);
+            for (int i = 0; i < differenceCount; i++) {
+                String path = readPath();
+                int type = input.readVarint();
+                if (type >= TYPES.length) {
+                    throw new IOException("Unknown difference type " + type);
+                }
+                diffResult.add(Difference.of(path, TYPES[type], input.readString(), input.readString(), input.readString()));
+            }
+        }
+        if (truncated) {
+            diffResult.markTruncated();
+        }
+        return diffResult;
+    }
+
+    private int readChunkVarint() throws IOException {
+        int value = input.readVarintOrEnd();
+        if (value < 0) {
+            throw new EOFException("Truncated diff log");
+        }
+        return value;
+    }
+
+    private String readPath() throws IOException {
+        int ref = input.readVarint();
+        if (ref > 0) {
+            if (ref > paths.size()) {
+                throw new IOException("Unknown path id " + (ref - 1));
+            }
+            return paths.get(ref - 1);
+        }
+        String path = input.readString();
+        if (paths.size() < maxInternedPaths) {
+            paths.add(path);
+        }
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,163 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.alphawang.diff.format.DiffResultFormatter;
+import com.alphawang.diff.format.FormatOptions;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Compact binary log of {@link DiffResult}s, read back by {@link BinaryDiffResultReader}.
+ * <pre>
+ * log        = "ODIF" version:byte maxInternedPaths:varint record*
+ * record     = length:varint truncated:byte identities:varint (key:string value:string)* chunk* 0:varint
+ * chunk      = length:varint differences:varint difference*
+ * difference = pathRef:varint [path:string] type:varint summary:string left:string right:string
+ * string     = length + 1:varint utf8, or 0 for null
+ * </pre>
+ * The differences are written in chunks of about one batch, so a result is never buffered whole.
+ * The first maxInternedPaths distinct paths get an id when first written as pathRef 0 plus the path,
+ * then they are written as pathRef id + 1 only. Values are written as their strings, cut to the limits of the {@link FormatOptions}.
+ */
+public class BinaryDiffResultWriter implements DiffResultWriter {
+
+    static final byte[] MAGIC = {'O', 'D', 'I', 'F'};
+    static final int VERSION = 1;
+    static final int DEFAULT_MAX_INTERNED_PATHS = 1 << 16;
+
+    private final ChannelOutput output;
+    private final int batchSize;
+    private final int maxInternedPaths;
+    private final FormatOptions options;
+    private final Map<String, Integer> pathIds = new HashMap<>();
+    private final RecordBuffer record = new RecordBuffer();
+
+    public BinaryDiffResultWriter(WritableByteChannel channel) throws IOException {
+        this(channel, ChannelOutput.DEFAULT_BATCH_SIZE, DEFAULT_MAX_INTERNED_PATHS);
+    }
+
+    /**
+     * @param batchSize bytes buffered before they are written to the channel
+     * @param maxInternedPaths distinct paths written by id, bounds the memory of the writer and the reader
+     */
+    public BinaryDiffResultWriter(WritableByteChannel channel, int batchSize, int maxInternedPaths) throws IOException {
+        this(channel, batchSize, maxInternedPaths, FormatOptions.unlimited());
+    }
+
+    /**
+     * @param options limits of each written value
+     */
+    public BinaryDiffResultWriter(WritableByteChannel channel, int batchSize, int maxInternedPaths, FormatOptions options) throws IOException {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        Preconditions.checkArgument(maxInternedPaths >= 0, "maxInternedPaths must not be negative");
+        this.output = new ChannelOutput(channel, batchSize);
+        this.batchSize = batchSize;
+        this.maxInternedPaths = maxInternedPaths;
+        this.options = options;
+
+        output.write(MAGIC, 0, MAGIC.length);
+        record.writeByte(VERSION);
+        record.writeVarint(maxInternedPaths);
+        output.write(record.bytes(), 0, record.size());
+    }
+
+    /**
+     * Create or truncate the file.
+     */
+    public static BinaryDiffResultWriter open(Path path) throws IOException {
+        return new BinaryDiffResultWriter(FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING));
+    }
+
+    @Override
+    public void write(DiffResult diffResult) throws IOException {
+        record.reset();
+        record.writeByte(diffResult.isTruncated() ? 1 : 0);
+
+        Map<?, ?> identities = diffResult.getIdentities();
+        if (identities == null) {
+            record.writeVarint(0);
+        } else {
+            record.writeVarint(identities.size());
+            for (Map.Entry<?, ?> identity : identities.entrySet()) {
+                record.writeString(String.valueOf(identity.getKey()));
+                record.writeString(String.valueOf(identity.getValue()));
+            }
+        }
+
+        output.writeVarint(record.size());
+        output.write(record.bytes(), 0, record.size());
+
+        record.reset();
+        int count = 0;
+        for (Difference difference : diffResult.getDifferences().values()) {
+            writePath(difference.getPath());
+            record.writeVarint(difference.getType().ordinal());
+            record.writeString(difference.getSummary());
+            record.writeString(format(difference.getLeftValue()));
+            record.writeString(format(difference.getRightValue()));
+            count++;
+            if (record.size() >= batchSize) {
+                writeChunk(count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            writeChunk(count);
+        }
+        output.writeVarint(0);
+    }
+
+    private void writeChunk(int count) throws IOException {
+        output.writeVarint(record.size());
+        output.writeVarint(count);
+        output.write(record.bytes(), 0, record.size());
+        record.reset();
+    }
+
+    private String format(Object value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        DiffResultFormatter.formatValue(value, options, sb);
+        return sb.toString();
+    }
+
+    private void writePath(String path) {
+        Integer id = pathIds.get(path);
+        if (id != null) {
+            record.writeVarint(id + 1);
+            return;
+        }
+        record.writeVarint(0);
+        record.writeString(path);
+        if (pathIds.size() < maxInternedPaths) {
+            pathIds.put(path, pathIds.size());
+        }
+    }
+
+    static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,107 @@
+package com.alphawang.diff.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the channel in batches into one buffer, grown only for a record larger than it.
+ */
+final class ChannelInput implements Closeable {
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+
+    ChannelInput(ReadableByteChannel channel, int batchSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(batchSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * @return false if the channel ends before length more bytes
+     */
+    boolean ensure(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return true;
+        }
+        if (length > buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < length) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    void require(int length) throws IOException {
+        if (!ensure(length)) {
+            throw new EOFException("Truncated diff log");
+        }
+    }
+
+    int readByte() {
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads from the buffer only, the caller has ensured the bytes.
+     */
+    int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * A varint that may span the end of the buffer.
+     * @return -1 at the end of the channel
+     */
+    int readVarintOrEnd() throws IOException {
+        if (!ensure(1)) {
+            return -1;
+        }
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            require(1);
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    String readString() throws IOException {
+        int length = readVarint() - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,65 @@
+package com.alphawang.diff.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Batches small writes into one buffer, which is written to the channel when full.
+ */
+final class ChannelOutput implements Closeable {
+
+    static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    ChannelOutput(WritableByteChannel channel, int batchSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(batchSize);
+    }
+
+    void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            flush();
+        }
+        if (length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes, offset, length));
+            return;
+        }
+        buffer.put(bytes, offset, length);
+    }
+
+    void writeVarint(int value) throws IOException {
+        if (buffer.remaining() < 5) {
+            flush();
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
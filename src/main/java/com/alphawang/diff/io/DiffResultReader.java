@@ -0,0 +1,18 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads back the {@link DiffResult}s of a log one by one.
+ * Values are read as their strings, and left and right objects are not part of the log.
+ */
+public interface DiffResultReader extends Closeable {
+
+    /**
+     * @return the next result, or null at the end of the log
+     */
+    DiffResult read() throws IOException;
+}
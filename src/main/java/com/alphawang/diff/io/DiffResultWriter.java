@@ -0,0 +1,19 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Appends {@link DiffResult}s to a log, one record each. Closing flushes the pending records and closes the channel.
+ */
+public interface DiffResultWriter extends Closeable {
+
+    void write(DiffResult diffResult) throws IOException;
+
+    /**
+     * Write the pending records to the channel.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,244 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.alphawang.diff.Difference.DifferenceType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the log of a {@link JsonLinesDiffResultWriter} line by line.
+ * Only parses the JSON the writer produces: objects, arrays, strings, booleans and null.
+ */
+public class JsonLinesDiffResultReader implements DiffResultReader {
+
+    /**
+     * Chars of the line shown on each side of the position of a parse error.
+     */
+    private static final int ERROR_WINDOW = 32;
+
+    private final BufferedReader reader;
+    private String line;
+    private int lineNumber;
+    private int position;
+
+    public JsonLinesDiffResultReader(ReadableByteChannel channel) {
+        this.reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), ChannelOutput.DEFAULT_BATCH_SIZE));
+    }
+
+    public static JsonLinesDiffResultReader open(Path path) throws IOException {
+        return new JsonLinesDiffResultReader(FileChannel.open(path, READ));
+    }
+
+    @Override
+    public DiffResult read() throws IOException {
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.trim().isEmpty());
+        position = 0;
+
+        Map<String, String> identities = null;
+        boolean truncated = false;
+        List<Difference> differences = Collections.emptyList();
+
+        expect('{');
+        while (!consume('}')) {
+            String name = readString();
+            expect(':');
+            switch (name) {
+                case "identities":
+                    identities = readIdentities();
+                    break;
+                case "truncated":
+                    truncated = readBoolean();
+                    break;
+                case "differences":
+                    differences = readDifferences();
+                    break;
+                default:
+                    throw error("Unknown field " + name);
+            }
+            consume(',');
+        }
+
+        DiffResult diffResult = new DiffResult(identities, null, null);
+        for (Difference difference : differences) {
+            diffResult.add(difference);
+        }
+        if (truncated) {
+            diffResult.markTruncated();
+        }
+        return diffResult;
+    }
+
+    private Map<String, String> readIdentities() throws IOException {
+        if (consumeNull()) {
+            return null;
+        }
+        Map<String, String> identities = new LinkedHashMap<>();
+        expect('{');
+        while (!consume('}')) {
+            String key = readString();
+            expect(':');
+            identities.put(key, readString());
+            consume(',');
+        }
+        return identities;
+    }
+
+    private List<Difference> readDifferences() throws IOException {
+        List<Difference> differences = new ArrayList<>();
+        expect('[');
+        while (!consume(']')) {
+            String path = null;
+            DifferenceType type = null;
+            String summary = null;
+            String left = null;
+            String right = null;
+
+            expect('{');
+            while (!consume('}')) {
+                String name = readString();
+                expect(':');
+                String value = readString();
+                switch (name) {
+                    case "path":
+                        path = value;
+                        break;
+                    case "type":
+                        type = DifferenceType.valueOf(value);
+                        break;
+                    case "summary":
+                        summary = value;
+                        break;
+                    case "left":
+                        left = value;
+                        break;
+                    case "right":
+                        right = value;
+                        break;
+                    default:
+                        throw error("Unknown field " + name);
+                }
+                consume(',');
+            }
+            differences.add(Difference.of(path, type, summary, left, right));
+            consume(',');
+        }
+        return differences;
+    }
+
+    private boolean readBoolean() throws IOException {
+        if (line.startsWith("true", position)) {
+            position += 4;
+            return true;
+        }
+        if (line.startsWith("false", position)) {
+            position += 5;
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+
+    /**
+     * A string, or null.
+     */
+    private String readString() throws IOException {
+        if (consumeNull()) {
+            return null;
+        }
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= line.length()) {
+                throw error("Unterminated string");
+            }
+            char c = line.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = line.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+
+    private boolean consumeNull() {
+        if (line.startsWith("null", position)) {
+            position += 4;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consume(char c) {
+        if (position < line.length() && line.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) throws IOException {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    /**
+     * Lines may hold whole values, so only the chars around the position are quoted.
+     */
+    private IOException error(String message) {
+        int from = Math.max(0, position - ERROR_WINDOW);
+        int to = Math.min(line.length(), position + ERROR_WINDOW);
+        return new IOException(message + " at line " + lineNumber + ", column " + position + " of " + line.length() + ": "
+            + (from > 0 ? "..." : "") + line.substring(from, to) + (to < line.length() ? "..." : ""));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,141 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Log of {@link DiffResult}s as UTF-8 JSON lines, read back by {@link JsonLinesDiffResultReader}:
+ * <pre>
+ * {"identities":{"id":"1"},"truncated":false,"differences":[{"path":"/name","type":"VALUE_NOT_EQUALS","summary":null,"left":"a","right":"b"}]}
+ * </pre>
+ * Identities and values are written as their strings.
+ */
+public class JsonLinesDiffResultWriter implements DiffResultWriter {
+
+    private final ChannelOutput output;
+    private final StringBuilder line = new StringBuilder();
+
+    public JsonLinesDiffResultWriter(WritableByteChannel channel) {
+        this(channel, ChannelOutput.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize bytes buffered before they are written to the channel
+     */
+    public JsonLinesDiffResultWriter(WritableByteChannel channel, int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be positive");
+        this.output = new ChannelOutput(channel, batchSize);
+    }
+
+    /**
+     * Create or truncate the file.
+     */
+    public static JsonLinesDiffResultWriter open(Path path) throws IOException {
+        return new JsonLinesDiffResultWriter(FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING));
+    }
+
+    @Override
+    public void write(DiffResult diffResult) throws IOException {
+        line.setLength(0);
+        line.append("{\"identities\":");
+        Map<?, ?> identities = diffResult.getIdentities();
+        if (identities == null) {
+            line.append("null");
+        } else {
+            line.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> identity : identities.entrySet()) {
+                if (!first) {
+                    line.append(',');
+                }
+                first = false;
+                appendString(String.valueOf(identity.getKey()));
+                line.append(':');
+                appendString(String.valueOf(identity.getValue()));
+            }
+            line.append('}');
+        }
+
+        line.append(",\"truncated\":").append(diffResult.isTruncated());
+        line.append(",\"differences\":[");
+        boolean first = true;
+        for (Difference difference : diffResult.getDifferences().values()) {
+            if (!first) {
+                line.append(',');
+            }
+            first = false;
+            line.append("{\"path\":");
+            appendString(difference.getPath());
+            line.append(",\"type\":");
+            appendString(difference.getType().name());
+            line.append(",\"summary\":");
+            appendString(difference.getSummary());
+            line.append(",\"left\":");
+            appendString(BinaryDiffResultWriter.toString(difference.getLeftValue()));
+            line.append(",\"right\":");
+            appendString(BinaryDiffResultWriter.toString(difference.getRightValue()));
+            line.append('}');
+        }
+        line.append("]}\n");
+
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
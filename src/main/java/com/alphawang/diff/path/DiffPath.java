@@ -0,0 +1,136 @@
+package com.alphawang.diff.path;
+
+/**
+ * Path of a node in the diffed object graph, as a chain of segments linked to the parent path.
+ *
+ * Creating a child path only allocates this small node. The path is turned into a String, e.g. /itemList/0/itemId,
+ * only when it is needed by a {@link com.alphawang.diff.Difference} or by a regex ignore path.
+ */
+public final class DiffPath {
+
+    public static final DiffPath ROOT = new DiffPath(null, "", -1);
+
+    static final char PATH_SEPARATOR = '/';
+    private static final String TEMPLATE_SEGMENT = "*";
+    private static final int NAMED = -1;
+    private static final int KEY = -2;
+
+    private final DiffPath parent;
+    private final Object segment;
+    /**
+     * Index of a collection or array item, else NAMED or KEY.
+     */
+    private final int index;
+    private String path;
+    /**
+     * Template of the last tree it was looked up in.
+     */
+    private PathTemplate template;
+
+    private DiffPath(DiffPath parent, Object segment, int index) {
+        this.parent = parent;
+        this.segment = segment;
+        this.index = index;
+        this.path = parent == null ? "" : null;
+    }
+
+    /**
+     * Child path of a field or a map key, the segment is converted with {@link String#valueOf(Object)} when needed.
+     */
+    public DiffPath child(Object segment) {
+        return new DiffPath(this, segment, NAMED);
+    }
+
+    /**
+     * Child path of a map key, or of a collection item not named by its index, e.g. by its collection item key.
+     * It is the same as {@link #child(Object)}, except in {@link #toTemplate()}.
+     */
+    public DiffPath key(Object key) {
+        return new DiffPath(this, key, KEY);
+    }
+
+    /**
+     * Child path of a collection or array index.
+     */
+    public DiffPath child(int index) {
+        return new DiffPath(this, null, index);
+    }
+
+    public DiffPath getParent() {
+        return parent;
+    }
+
+    public String getSegment() {
+        return index >= 0 ? String.valueOf(index) : String.valueOf(segment);
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    @Override
+    public String toString() {
+        if (path == null) {
+            path = build(false);
+        }
+        return path;
+    }
+
+    /**
+     * The path with every index and key replaced by *, e.g. /itemList/&#42;/itemId, to group the paths of the same field.
+     */
+    public String toTemplate() {
+        return build(true);
+    }
+
+    /**
+     * The {@link #toTemplate()} interned in the tree, looked up from the template of the parent
+     * and cached on the path until it is looked up in another tree.
+     */
+    public PathTemplate getTemplate(PathTemplate tree) {
+        PathTemplate known;
+        while ((known = templateIn(tree)) == null) {
+            // the deepest ancestor whose template is not known yet, without recursion
+            DiffPath p = this;
+            while (p.parent.templateIn(tree) == null) {
+                p = p.parent;
+            }
+            p.template = p.parent.templateIn(tree).child(templateSegment(p));
+        }
+        return known;
+    }
+
+    private PathTemplate templateIn(PathTemplate tree) {
+        if (parent == null) {
+            return tree;
+        }
+        PathTemplate t = template;
+        return t != null && t.isIn(tree) ? t : null;
+    }
+
+    private static String templateSegment(DiffPath path) {
+        return path.index == NAMED ? path.getSegment() : TEMPLATE_SEGMENT;
+    }
+
+    private String build(boolean asTemplate) {
+        int depth = 0;
+        for (DiffPath p = this; p.parent != null; p = p.parent) {
+            depth++;
+        }
+
+        String[] segments = new String[depth];
+        int length = 0;
+        DiffPath p = this;
+        for (int i = depth - 1; i >= 0; i--) {
+            segments[i] = asTemplate ? templateSegment(p) : p.getSegment();
+            length += segments[i].length() + 1;
+            p = p.parent;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (String segment : segments) {
+            sb.append(PATH_SEPARATOR).append(segment);
+        }
+        return sb.toString();
+    }
+}
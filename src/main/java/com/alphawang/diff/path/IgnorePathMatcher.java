@@ -0,0 +1,435 @@
+package com.alphawang.diff.path;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Ignore paths compiled once, then matched segment by segment while the object graph is walked.
+ *
+ * Literal paths, globs and regexes that only use whole-segment wildcards ({@code [^/]+}, {@code \d+}, a trailing {@code .*})
+ * are compiled into a segment trie. Every other regex goes into a single alternation {@link Pattern}.
+ *
+ * Each visited path has a {@link State}. Once neither the trie nor the regex can match any descendant of a path,
+ * the state is {@link State#isDead() dead} and the subtree below it is not matched any more.
+ *
+ * A segment holding the separator, e.g. the map key {@code "a/b"}, makes the segments of a path differ from its split String.
+ * Below such a segment the regexes of the trie are matched against the whole path like the other regexes, as {@link String#matches}.
+ * Globs are always matched by segment.
+ */
+@Slf4j
+public class IgnorePathMatcher {
+
+    public static final IgnorePathMatcher NONE = new IgnorePathMatcher(new Node(true), new Node(false), Collections.emptyList(), Collections.emptyList());
+
+    private static final String PATH_SEPARATOR = "/";
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\[1-9]|\\\\k<");
+    private static final String ANY_SUFFIX = "(/.*)?";
+
+    private final List<Pattern> regexes;
+    private final List<Pattern> wholePathRegexes;
+    private final State root;
+
+    private IgnorePathMatcher(Node regexRoot, Node globRoot, List<Pattern> regexes, List<Pattern> wholePathRegexes) {
+        this.regexes = regexes;
+        this.wholePathRegexes = wholePathRegexes;
+        Set<Node> roots = new LinkedHashSet<>();
+        for (Node trieRoot : ImmutableList.of(regexRoot, globRoot)) {
+            if (!trieRoot.isEmpty()) {
+                roots.add(trieRoot);
+            }
+        }
+        this.root = roots.isEmpty() && regexes.isEmpty()
+            ? State.DEAD
+            : new State(closure(roots), false, !regexes.isEmpty(), false);
+    }
+
+    /**
+     * @param regexes regexes a path must fully match, as {@link String#matches}
+     * @param globs   globs where {@code *} is any single segment, or any part of a segment, and {@code **} is any number of segments
+     * @return
+     */
+    public static IgnorePathMatcher compile(Collection<String> regexes, Collection<String> globs) {
+        if ((regexes == null || regexes.isEmpty()) && (globs == null || globs.isEmpty())) {
+            return NONE;
+        }
+
+        Node regexRoot = new Node(true);
+        Node globRoot = new Node(false);
+        List<String> otherRegexes = new ArrayList<>();
+        if (regexes != null) {
+            for (String regex : regexes) {
+                if (!addRegex(regexRoot, regex)) {
+                    otherRegexes.add(regex);
+                }
+            }
+        }
+        if (globs != null) {
+            for (String glob : globs) {
+                addGlob(globRoot, glob);
+            }
+        }
+
+        List<Pattern> compiledRegexes = compileRegexes(otherRegexes);
+        List<Pattern> wholePathRegexes = regexRoot.isEmpty() ? compiledRegexes : compileRegexes(new ArrayList<>(regexes));
+        return new IgnorePathMatcher(regexRoot, globRoot, compiledRegexes, wholePathRegexes);
+    }
+
+    public State root() {
+        return root;
+    }
+
+    /**
+     * State of {@code path}, whose parent path has the state {@code parent}.
+     */
+    public State child(State parent, DiffPath path) {
+        if (parent.isDead()) {
+            return parent;
+        }
+
+        String segment = path.getSegment();
+        boolean wholePath = parent.wholePath || segment.contains(PATH_SEPARATOR);
+        Set<Node> parentNodes = parent.nodes;
+        if (wholePath && !parent.wholePath) {
+            parentNodes = withoutRegexNodes(parentNodes);
+        }
+
+        Set<Node> nodes = Collections.emptySet();
+        boolean ignored = false;
+        if (!parentNodes.isEmpty()) {
+            nodes = closure(next(parentNodes, segment));
+            for (Node node : nodes) {
+                ignored |= node.terminal;
+            }
+        }
+
+        boolean regexAlive = false;
+        if (parent.regexAlive || wholePath != parent.wholePath) {
+            for (Pattern regex : wholePath ? wholePathRegexes : regexes) {
+                Matcher matcher = regex.matcher(path.toString());
+                if (matcher.matches()) {
+                    ignored = true;
+                    regexAlive = true;
+                } else {
+                    regexAlive |= matcher.hitEnd();
+                }
+            }
+        }
+
+        if (nodes.isEmpty() && !regexAlive) {
+            return ignored ? State.DEAD_IGNORED : State.DEAD;
+        }
+        return new State(nodes, ignored, regexAlive, wholePath);
+    }
+
+    private static Set<Node> withoutRegexNodes(Set<Node> nodes) {
+        Set<Node> globNodes = new LinkedHashSet<>();
+        for (Node node : nodes) {
+            if (!node.regex) {
+                globNodes.add(node);
+            }
+        }
+        return globNodes;
+    }
+
+    private static Set<Node> next(Set<Node> nodes, String segment) {
+        Set<Node> next = new LinkedHashSet<>();
+        for (Node node : nodes) {
+            Node literal = node.literals.get(segment);
+            if (literal != null) {
+                next.add(literal);
+            }
+            for (Edge edge : node.edges) {
+                if (edge.matches(segment)) {
+                    next.add(edge.target);
+                }
+            }
+            if (node.anyDepth) {
+                next.add(node);
+            }
+        }
+        return next;
+    }
+
+    private static Set<Node> closure(Set<Node> nodes) {
+        if (nodes.isEmpty()) {
+            return nodes;
+        }
+        Set<Node> closure = new LinkedHashSet<>(nodes);
+        for (Node node : nodes) {
+            for (Node anyDepth = node.anyDepthChild; anyDepth != null; anyDepth = anyDepth.anyDepthChild) {
+                closure.add(anyDepth);
+            }
+        }
+        return closure;
+    }
+
+    private static boolean addRegex(Node trieRoot, String regex) {
+        boolean withDescendants = regex.endsWith(ANY_SUFFIX);
+        String body = withDescendants ? regex.substring(0, regex.length() - ANY_SUFFIX.length()) : regex;
+        if (!body.startsWith(PATH_SEPARATOR)) {
+            return false;
+        }
+
+        String[] segments = body.substring(1).split(PATH_SEPARATOR, -1);
+        List<Edge> steps = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean last = i == segments.length - 1;
+            if (isLiteral(segment)) {
+                steps.add(Edge.literal(segment));
+            } else if ("[^/]+".equals(segment)) {
+                steps.add(Edge.of(EdgeKind.ANY));
+            } else if ("[^/]*".equals(segment)) {
+                steps.add(Edge.of(EdgeKind.ANY_OR_EMPTY));
+            } else if ("\\d+".equals(segment) || "[0-9]+".equals(segment)) {
+                steps.add(Edge.of(EdgeKind.DIGITS));
+            } else if (".*".equals(segment) && last && !withDescendants) {
+                // "/a/.*" is any descendant of "/a"
+                steps.add(Edge.of(EdgeKind.ANY_DEPTH));
+                steps.add(Edge.of(EdgeKind.ANY_OR_EMPTY));
+            } else {
+                return false;
+            }
+        }
+
+        Node node = add(trieRoot, steps);
+        node.terminal = true;
+        if (withDescendants) {
+            add(node, ImmutableList.of(Edge.of(EdgeKind.ANY_DEPTH), Edge.of(EdgeKind.ANY_OR_EMPTY))).terminal = true;
+        }
+        return true;
+    }
+
+    private static void addGlob(Node trieRoot, String glob) {
+        String body = glob.startsWith(PATH_SEPARATOR) ? glob.substring(1) : glob;
+        List<Edge> steps = new ArrayList<>();
+        for (String segment : body.split(PATH_SEPARATOR, -1)) {
+            if ("**".equals(segment)) {
+                steps.add(Edge.of(EdgeKind.ANY_DEPTH));
+            } else if ("*".equals(segment)) {
+                steps.add(Edge.of(EdgeKind.ANY));
+            } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                steps.add(Edge.pattern(globToRegex(segment)));
+            } else {
+                steps.add(Edge.literal(segment));
+            }
+        }
+        add(trieRoot, steps).terminal = true;
+    }
+
+    private static Node add(Node node, List<Edge> steps) {
+        boolean regex = node.regex;
+        for (Edge step : steps) {
+            switch (step.kind) {
+                case LITERAL:
+                    node = node.literals.computeIfAbsent(step.literal, key -> new Node(regex));
+                    break;
+                case ANY_DEPTH:
+                    if (node.anyDepthChild == null) {
+                        node.anyDepthChild = new Node(regex);
+                        node.anyDepthChild.anyDepth = true;
+                    }
+                    node = node.anyDepthChild;
+                    break;
+                default:
+                    Edge existing = node.find(step);
+                    if (existing == null) {
+                        existing = step.to(new Node(regex));
+                        node.edges.add(existing);
+                    }
+                    node = existing.target;
+                    break;
+            }
+        }
+        return node;
+    }
+
+    private static List<Pattern> compileRegexes(List<String> regexes) {
+        if (regexes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        boolean combinable = true;
+        for (String regex : regexes) {
+            combinable &= !BACK_REFERENCE.matcher(regex).find();
+        }
+        if (combinable) {
+            try {
+                return ImmutableList.of(Pattern.compile("(?:" + Joiner.on(")|(?:").join(regexes) + ")"));
+            } catch (PatternSyntaxException e) {
+                log.debug("Cannot combine ignore paths {}", regexes, e);
+            }
+        }
+
+        List<Pattern> patterns = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            patterns.add(Pattern.compile(regex));
+        }
+        return patterns;
+    }
+
+    private static boolean isLiteral(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if ("\\.[]{}()*+?^$|".indexOf(segment.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String globToRegex(String segment) {
+        StringBuilder sb = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literalStart) {
+                    sb.append(Pattern.quote(segment.substring(literalStart, i)));
+                }
+                sb.append(c == '*' ? ".*" : ".");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < segment.length()) {
+            sb.append(Pattern.quote(segment.substring(literalStart)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Where the match stands at one path.
+     */
+    public static class State {
+        private static final State DEAD = new State(Collections.emptySet(), false, false, false);
+        private static final State DEAD_IGNORED = new State(Collections.emptySet(), true, false, false);
+
+        private final Set<Node> nodes;
+        private final boolean ignored;
+        private final boolean regexAlive;
+        private final boolean wholePath;
+
+        private State(Set<Node> nodes, boolean ignored, boolean regexAlive, boolean wholePath) {
+            this.nodes = nodes;
+            this.ignored = ignored;
+            this.regexAlive = regexAlive;
+            this.wholePath = wholePath;
+        }
+
+        public boolean isIgnored() {
+            return ignored;
+        }
+
+        /**
+         * No descendant of this path can be ignored.
+         */
+        public boolean isDead() {
+            return nodes.isEmpty() && !regexAlive;
+        }
+    }
+
+    private static class Node {
+        private final boolean regex;
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<Edge> edges = new ArrayList<>();
+        private Node anyDepthChild;
+        private boolean anyDepth;
+        private boolean terminal;
+
+        private Node(boolean regex) {
+            this.regex = regex;
+        }
+
+        private boolean isEmpty() {
+            return literals.isEmpty() && edges.isEmpty() && anyDepthChild == null && !terminal;
+        }
+
+        private Edge find(Edge step) {
+            for (Edge edge : edges) {
+                if (edge.kind == step.kind && (edge.pattern == null || edge.pattern.pattern().equals(step.pattern.pattern()))) {
+                    return edge;
+                }
+            }
+            return null;
+        }
+    }
+
+    private enum EdgeKind {
+        LITERAL,
+        ANY,
+        ANY_OR_EMPTY,
+        DIGITS,
+        PATTERN,
+        ANY_DEPTH,
+    }
+
+    private static class Edge {
+        private final EdgeKind kind;
+        private final String literal;
+        private final Pattern pattern;
+        private final Node target;
+
+        private Edge(EdgeKind kind, String literal, Pattern pattern, Node target) {
+            this.kind = kind;
+            this.literal = literal;
+            this.pattern = pattern;
+            this.target = target;
+        }
+
+        static Edge of(EdgeKind kind) {
+            return new Edge(kind, null, null, null);
+        }
+
+        static Edge literal(String literal) {
+            return new Edge(EdgeKind.LITERAL, literal, null, null);
+        }
+
+        static Edge pattern(String regex) {
+            return new Edge(EdgeKind.PATTERN, null, Pattern.compile(regex), null);
+        }
+
+        Edge to(Node target) {
+            return new Edge(kind, literal, pattern, target);
+        }
+
+        boolean matches(String segment) {
+            switch (kind) {
+                case ANY:
+                    return !segment.isEmpty();
+                case ANY_OR_EMPTY:
+                    return true;
+                case DIGITS:
+                    return isDigits(segment);
+                case PATTERN:
+                    return pattern.matcher(segment).matches();
+                default:
+                    return false;
+            }
+        }
+
+        private static boolean isDigits(String segment) {
+            if (segment.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                char c = segment.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
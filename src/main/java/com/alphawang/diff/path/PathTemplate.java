@@ -0,0 +1,85 @@
+package com.alphawang.diff.path;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Template of the paths of the same field, see {@link DiffPath#getTemplate(PathTemplate)}.
+ *
+ * Templates are interned in a tree created by {@link #newTree()}, e.g. one per profiler, so the paths with the same template
+ * share one instance of the tree, which can be used as a key by identity without building the String.
+ * A tree only grows with the distinct field names, not with the diffed values, and is dropped with its owner.
+ * Each node only holds its own segment, the template String is built when it is first needed.
+ */
+public final class PathTemplate {
+
+    private final PathTemplate root;
+    private final PathTemplate parent;
+    private final String segment;
+    private final ConcurrentMap<String, PathTemplate> children = new ConcurrentHashMap<>();
+    private volatile String template;
+
+    private PathTemplate(PathTemplate parent, String segment) {
+        this.root = parent == null ? this : parent.root;
+        this.parent = parent;
+        this.segment = segment;
+        this.template = parent == null ? "" : null;
+    }
+
+    /**
+     * Root of a new empty tree.
+     */
+    public static PathTemplate newTree() {
+        return new PathTemplate(null, "");
+    }
+
+    PathTemplate child(String segment) {
+        PathTemplate child = children.get(segment);
+        if (child == null) {
+            PathTemplate created = new PathTemplate(this, segment);
+            child = children.putIfAbsent(segment, created);
+            if (child == null) {
+                child = created;
+            }
+        }
+        return child;
+    }
+
+    boolean isIn(PathTemplate tree) {
+        return root == tree;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    @Override
+    public String toString() {
+        if (template == null) {
+            template = build();
+        }
+        return template;
+    }
+
+    private String build() {
+        int depth = 0;
+        int length = 0;
+        for (PathTemplate t = this; t.parent != null; t = t.parent) {
+            depth++;
+            length += t.segment.length() + 1;
+        }
+
+        String[] segments = new String[depth];
+        PathTemplate t = this;
+        for (int i = depth - 1; i >= 0; i--) {
+            segments[i] = t.segment;
+            t = t.parent;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (String s : segments) {
+            sb.append(DiffPath.PATH_SEPARATOR).append(s);
+        }
+        return sb.toString();
+    }
+}
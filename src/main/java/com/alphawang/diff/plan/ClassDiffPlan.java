@@ -0,0 +1,44 @@
+package com.alphawang.diff.plan;
+
+import com.alphawang.diff.util.ReflectionUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable diff plan of a class: its fields in diff order, with accessors and type dispatch precomputed.
+ * Plans are built once per class and cached in a {@link ClassValue} by {@link ClassDiffPlans}, so they are safe to share between threads.
+ */
+@Getter
+public class ClassDiffPlan {
+
+    private final Class<?> type;
+    private final List<FieldDiffPlan> fields;
+    private final Map<String, FieldDiffPlan> fieldsByName;
+
+    ClassDiffPlan(Class<?> type, FieldAccessorFactory accessorFactory) {
+        ImmutableList.Builder<FieldDiffPlan> fields = ImmutableList.builder();
+        ImmutableMap.Builder<String, FieldDiffPlan> fieldsByName = ImmutableMap.builder();
+        for (Field field : ReflectionUtils.getFields(type).values()) {
+            FieldDiffPlan fieldPlan = new FieldDiffPlan(field, accessorFactory);
+            fields.add(fieldPlan);
+            fieldsByName.put(fieldPlan.getName(), fieldPlan);
+        }
+
+        this.type = type;
+        this.fields = fields.build();
+        this.fieldsByName = fieldsByName.build();
+    }
+
+    public static ClassDiffPlan of(Class<?> clazz) {
+        return ClassDiffPlans.defaults().get(clazz);
+    }
+
+    public FieldDiffPlan getField(String name) {
+        return fieldsByName.get(name);
+    }
+}
@@ -0,0 +1,41 @@
+package com.alphawang.diff.plan;
+
+import com.google.common.collect.MapMaker;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of {@link ClassDiffPlan}s built with one {@link FieldAccessorFactory}.
+ */
+public class ClassDiffPlans {
+
+    /**
+     * Shared by the differs of the same factory, by identity. Held weakly, the plans referencing their factory,
+     * so that the plans of a factory go away with the last differ using it.
+     */
+    private static final ConcurrentMap<FieldAccessorFactory, ClassDiffPlans> CACHES = new MapMaker().weakKeys().weakValues().makeMap();
+    private static final ClassDiffPlans DEFAULTS = of(FieldAccessors.methodHandle());
+
+    private final ClassValue<ClassDiffPlan> plans;
+
+    private ClassDiffPlans(FieldAccessorFactory accessorFactory) {
+        this.plans = new ClassValue<ClassDiffPlan>() {
+            @Override
+            protected ClassDiffPlan computeValue(Class<?> type) {
+                return new ClassDiffPlan(type, accessorFactory);
+            }
+        };
+    }
+
+    public static ClassDiffPlans defaults() {
+        return DEFAULTS;
+    }
+
+    public static ClassDiffPlans of(FieldAccessorFactory accessorFactory) {
+        return CACHES.computeIfAbsent(accessorFactory, ClassDiffPlans::new);
+    }
+
+    public ClassDiffPlan get(Class<?> clazz) {
+        return plans.get(clazz);
+    }
+}
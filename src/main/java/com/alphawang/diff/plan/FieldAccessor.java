@@ -0,0 +1,19 @@
+package com.alphawang.diff.plan;
+
+import java.util.Objects;
+
+/**
+ * Reads the value of one field. Created once per field by a {@link FieldAccessorFactory}.
+ */
+public interface FieldAccessor {
+
+    Object get(Object target);
+
+    /**
+     * Whether the field has the same value in both targets, which must be of the declaring class.
+     * Accessors of primitive fields compare the values without boxing.
+     */
+    default boolean isEqual(Object left, Object right) {
+        return Objects.equals(get(left), get(right));
+    }
+}
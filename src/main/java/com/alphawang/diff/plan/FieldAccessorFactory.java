@@ -0,0 +1,13 @@
+package com.alphawang.diff.plan;
+
+import java.lang.reflect.Field;
+
+/**
+ * Creates the {@link FieldAccessor} of a field, the field is already accessible.
+ *
+ * @see FieldAccessors
+ */
+public interface FieldAccessorFactory {
+
+    FieldAccessor create(Field field);
+}
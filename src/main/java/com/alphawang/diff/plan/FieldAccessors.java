@@ -0,0 +1,131 @@
+package com.alphawang.diff.plan;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Built-in {@link FieldAccessorFactory}s.
+ */
+public class FieldAccessors {
+
+    private static final FieldAccessorFactory REFLECTION = FieldAccessors::reflection;
+    private static final FieldAccessorFactory METHOD_HANDLE = FieldAccessors::methodHandle;
+
+    /**
+     * Reads fields through {@link Field#get}.
+     * Primitive fields are compared with {@link Field#getLong} and friends, without boxing.
+     */
+    public static FieldAccessorFactory reflection() {
+        return REFLECTION;
+    }
+
+    /**
+     * Reads fields through a getter {@link MethodHandle} created once per field.
+     * Primitive fields are compared through handles typed to the primitive, without boxing.
+     */
+    public static FieldAccessorFactory methodHandle() {
+        return METHOD_HANDLE;
+    }
+
+    private static FieldAccessor reflection(Field field) {
+        Class<?> type = field.getType();
+        if (type == long.class) {
+            return accessor(field::get, (left, right) -> field.getLong(left) == field.getLong(right));
+        }
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return accessor(field::get, (left, right) -> field.getInt(left) == field.getInt(right));
+        }
+        if (type == boolean.class) {
+            return accessor(field::get, (left, right) -> field.getBoolean(left) == field.getBoolean(right));
+        }
+        if (type == double.class || type == float.class) {
+            return accessor(field::get, (left, right) -> isSameDouble(field.getDouble(left), field.getDouble(right)));
+        }
+        return accessor(field::get, null);
+    }
+
+    private static FieldAccessor methodHandle(Field field) {
+        if (Modifier.isStatic(field.getModifiers())) {
+            // the getter of a static field takes no target, and constants are not worth a handle
+            return reflection(field);
+        }
+        MethodHandle getter;
+        try {
+            getter = MethodHandles.lookup().unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            return reflection(field);
+        }
+
+        Class<?> type = field.getType();
+        MethodHandle objectGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+        Reader reader = target -> objectGetter.invokeExact(target);
+        if (type == long.class) {
+            MethodHandle longGetter = getter.asType(MethodType.methodType(long.class, Object.class));
+            return accessor(reader, (left, right) -> (long) longGetter.invokeExact(left) == (long) longGetter.invokeExact(right));
+        }
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            MethodHandle intGetter = getter.asType(MethodType.methodType(int.class, Object.class));
+            return accessor(reader, (left, right) -> (int) intGetter.invokeExact(left) == (int) intGetter.invokeExact(right));
+        }
+        if (type == boolean.class) {
+            MethodHandle booleanGetter = getter.asType(MethodType.methodType(boolean.class, Object.class));
+            return accessor(reader, (left, right) -> (boolean) booleanGetter.invokeExact(left) == (boolean) booleanGetter.invokeExact(right));
+        }
+        if (type == double.class || type == float.class) {
+            MethodHandle doubleGetter = getter.asType(MethodType.methodType(double.class, Object.class));
+            return accessor(reader, (left, right) -> isSameDouble((double) doubleGetter.invokeExact(left), (double) doubleGetter.invokeExact(right)));
+        }
+        return accessor(reader, null);
+    }
+
+    /**
+     * Same semantics as Double#equals, which the boxed diff uses.
+     */
+    private static boolean isSameDouble(double left, double right) {
+        return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+    }
+
+    /**
+     * @param equalityCheck compares primitive fields without boxing, null to compare the values read by the reader
+     */
+    private static FieldAccessor accessor(Reader reader, EqualityCheck equalityCheck) {
+        return new FieldAccessor() {
+            @Override
+            public Object get(Object target) {
+                try {
+                    return reader.read(target);
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public boolean isEqual(Object left, Object right) {
+                if (equalityCheck == null) {
+                    return FieldAccessor.super.isEqual(left, right);
+                }
+                try {
+                    return equalityCheck.isEqual(left, right);
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Read of a field through reflection or a method handle, whatever it throws.
+     */
+    @FunctionalInterface
+    private interface Reader {
+        Object read(Object target) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface EqualityCheck {
+        boolean isEqual(Object left, Object right) throws Throwable;
+    }
+}
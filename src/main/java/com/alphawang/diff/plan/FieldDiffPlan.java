@@ -0,0 +1,75 @@
+package com.alphawang.diff.plan;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+
+/**
+ * Immutable per-field part of a {@link ClassDiffPlan}.
+ */
+@Slf4j
+@Getter
+public class FieldDiffPlan {
+
+    private final String name;
+    private final Field field;
+    private final FieldKind kind;
+    private final boolean accessible;
+    private final FieldAccessor accessor;
+
+    FieldDiffPlan(Field field, FieldAccessorFactory accessorFactory) {
+        this.name = field.getName();
+        this.field = field;
+        this.kind = FieldKind.of(field.getType());
+        this.accessible = makeAccessible(field);
+        this.accessor = accessible ? accessorFactory.create(field) : null;
+    }
+
+    public Object get(Object target) {
+        return accessor.get(target);
+    }
+
+    /**
+     * Whether this field has the same value in both targets, without boxing primitives.
+     */
+    public boolean isEqual(Object left, Object right) {
+        return accessor.isEqual(left, right);
+    }
+
+    private static boolean makeAccessible(Field field) {
+        try {
+            field.setAccessible(true);
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("cannot access {}#{}", field.getDeclaringClass().getSimpleName(), field.getName());
+            return false;
+        }
+    }
+
+    /**
+     * How the values of a field are diffed, decided once from the declared type.
+     */
+    public enum FieldKind {
+        /**
+         * The runtime value is always a simple class, so diff it by equals without any dispatch.
+         */
+        SIMPLE,
+        /**
+         * Dispatch on the runtime class of the value.
+         */
+        DYNAMIC,
+        ;
+
+        static FieldKind of(Class<?> type) {
+            boolean simple = type.isPrimitive()
+                || Number.class.isAssignableFrom(type)
+                || String.class == type
+                || Character.class == type
+                || Boolean.class == type
+                || LocalDate.class == type;
+            return simple ? SIMPLE : DYNAMIC;
+        }
+    }
+}
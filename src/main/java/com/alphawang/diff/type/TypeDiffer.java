@@ -0,0 +1,15 @@
+package com.alphawang.diff.type;
+
+/**
+ * Compares the values of one type instead of the built-in diff, e.g. numbers within a tolerance.
+ * Registered per class on {@link com.alphawang.diff.ObjectDiff#addTypeDiffer}, and used for its subclasses too;
+ * values it finds different are reported as VALUE_NOT_EQUALS.
+ */
+@FunctionalInterface
+public interface TypeDiffer<T> {
+
+    /**
+     * Only called with two non-null values that are not equal by {@link Object#equals}.
+     */
+    boolean isEqual(T left, T right);
+}
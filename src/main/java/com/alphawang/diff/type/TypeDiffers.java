@@ -0,0 +1,48 @@
+package com.alphawang.diff.type;
+
+import com.google.common.base.Preconditions;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+
+/**
+ * Built-in {@link TypeDiffer}s.
+ */
+public class TypeDiffers {
+
+    /**
+     * Values equal when the comparator finds them equal, e.g. {@code BigDecimal::compareTo} to ignore the scale.
+     */
+    public static <T> TypeDiffer<T> comparing(Comparator<? super T> comparator) {
+        return (left, right) -> comparator.compare(left, right) == 0;
+    }
+
+    /**
+     * Decimals equal when they differ by at most tolerance.
+     */
+    public static TypeDiffer<BigDecimal> tolerance(BigDecimal tolerance) {
+        Preconditions.checkArgument(tolerance.signum() >= 0, "tolerance must not be negative");
+        return (left, right) -> left.subtract(right).abs().compareTo(tolerance) <= 0;
+    }
+
+    /**
+     * Numbers, e.g. Double and Float, equal when their double values differ by at most tolerance.
+     */
+    public static TypeDiffer<Number> tolerance(double tolerance) {
+        Preconditions.checkArgument(tolerance >= 0, "tolerance must not be negative");
+        return (left, right) -> {
+            double leftValue = left.doubleValue();
+            double rightValue = right.doubleValue();
+            return Double.compare(leftValue, rightValue) == 0 || Math.abs(leftValue - rightValue) <= tolerance;
+        };
+    }
+
+    /**
+     * Instants equal when they are in the same unit, e.g. the same second with {@link ChronoUnit#SECONDS}.
+     */
+    public static TypeDiffer<Instant> truncatedTo(ChronoUnit unit) {
+        return (left, right) -> left.truncatedTo(unit).equals(right.truncatedTo(unit));
+    }
+}
@@ -0,0 +1,51 @@
+package com.alphawang.diff.util;
+
+/**
+ * Small 64-bit hash primitives used for structural fingerprints.
+ * The mix is the finalizer of MurmurHash3, which spreads every input bit over the whole hash.
+ */
+public class Hashing64 {
+
+    public static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xC6A4A7935BD1E995L;
+
+    private Hashing64() { }
+
+    public static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Fold a value into a hash where the order of the values matters.
+     */
+    public static long ordered(long hash, long value) {
+        return Long.rotateLeft(hash ^ mix(value), 31) * MULTIPLIER;
+    }
+
+    /**
+     * Fold a value into a hash where the order of the values does not matter, e.g. map entries.
+     */
+    public static long unordered(long hash, long value) {
+        return hash + mix(value);
+    }
+
+    public static long finish(long hash) {
+        return mix(hash);
+    }
+
+    /**
+     * 64-bit hash of the chars of a string, unlike {@link String#hashCode()} it is not limited to 32 bits.
+     */
+    public static long hash(CharSequence chars) {
+        long hash = ordered(SEED, chars.length());
+        for (int i = 0; i < chars.length(); i++) {
+            hash = (hash ^ chars.charAt(i)) * 0x100000001B3L;
+        }
+        return finish(hash);
+    }
+}
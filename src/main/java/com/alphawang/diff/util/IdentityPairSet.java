@@ -0,0 +1,87 @@
+package com.alphawang.diff.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of (left, right) pairs compared by reference, whatever their equals and hashCode.
+ */
+public class IdentityPairSet {
+
+    private final IdentityPairSet parent;
+    private final Set<IdentityPair> pairs = new HashSet<>();
+
+    private IdentityPairSet(IdentityPairSet parent) {
+        this.parent = parent;
+    }
+
+    public static IdentityPairSet create() {
+        return new IdentityPairSet(null);
+    }
+
+    /**
+     * Set that starts with the pairs of this one, and keeps the pairs added to it to itself until they are {@link #addAll added} back.
+     * Several children may be used by several threads, as long as this set is not added to meanwhile.
+     */
+    public IdentityPairSet child() {
+        return new IdentityPairSet(this);
+    }
+
+    /**
+     * @return whether the pair was not in the set yet
+     */
+    public boolean add(Object left, Object right) {
+        IdentityPair pair = new IdentityPair(left, right);
+        for (IdentityPairSet set = parent; set != null; set = set.parent) {
+            if (set.pairs.contains(pair)) {
+                return false;
+            }
+        }
+        return pairs.add(pair);
+    }
+
+    /**
+     * @return whether a pair added to the other set is in this set, or in one of its parents
+     */
+    public boolean containsAny(IdentityPairSet other) {
+        for (IdentityPair pair : other.pairs) {
+            for (IdentityPairSet set = this; set != null; set = set.parent) {
+                if (set.pairs.contains(pair)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add the pairs added to the other set, e.g. a child of this set once its users are done with it.
+     */
+    public void addAll(IdentityPairSet other) {
+        pairs.addAll(other.pairs);
+    }
+
+    private static final class IdentityPair {
+        private final Object left;
+        private final Object right;
+
+        private IdentityPair(Object left, Object right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IdentityPair)) {
+                return false;
+            }
+            IdentityPair other = (IdentityPair) o;
+            return left == other.left && right == other.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(left) + System.identityHashCode(right);
+        }
+    }
+}
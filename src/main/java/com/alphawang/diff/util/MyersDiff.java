@@ -0,0 +1,138 @@
+package com.alphawang.diff.util;
+
+import java.util.Arrays;
+
+/**
+ * Longest common subsequence of two int sequences with Myers' O(ND) algorithm, in linear space:
+ * the edit graph is split at the middle snake found by a forward and a backward search, then both halves are diffed.
+ * Common prefixes and suffixes are matched first, so near identical sequences cost close to O(N).
+ */
+public class MyersDiff {
+
+    private static final Runnable NO_CHECK = () -> { };
+
+    private final int[] left;
+    private final int[] right;
+    private final int[] leftMatches;
+    private final Runnable check;
+
+    private MyersDiff(int[] left, int[] right, Runnable check) {
+        this.left = left;
+        this.right = right;
+        this.check = check;
+        this.leftMatches = new int[left.length];
+        Arrays.fill(leftMatches, -1);
+    }
+
+    /**
+     * @return for each left index, the index of the right item it is matched to in a longest common subsequence, or -1
+     */
+    public static int[] match(int[] left, int[] right) {
+        return match(left, right, NO_CHECK);
+    }
+
+    /**
+     * @param check run before each round of the search, e.g. to give up past a deadline by throwing
+     */
+    public static int[] match(int[] left, int[] right, Runnable check) {
+        MyersDiff diff = new MyersDiff(left, right, check);
+        diff.diff(0, left.length, 0, right.length);
+        return diff.leftMatches;
+    }
+
+    private void diff(int leftFrom, int leftTo, int rightFrom, int rightTo) {
+        while (leftFrom < leftTo && rightFrom < rightTo && left[leftFrom] == right[rightFrom]) {
+            leftMatches[leftFrom++] = rightFrom++;
+        }
+        while (leftFrom < leftTo && rightFrom < rightTo && left[leftTo - 1] == right[rightTo - 1]) {
+            leftMatches[--leftTo] = --rightTo;
+        }
+        if (leftFrom == leftTo || rightFrom == rightTo) {
+            return;
+        }
+
+        bisect(leftFrom, leftTo, rightFrom, rightTo);
+    }
+
+    private void bisect(int leftFrom, int leftTo, int rightFrom, int rightTo) {
+        int n = leftTo - leftFrom;
+        int m = rightTo - rightFrom;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        Arrays.fill(forward, -1);
+        Arrays.fill(backward, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int forwardStart = 0;
+        int forwardEnd = 0;
+        int backwardStart = 0;
+        int backwardEnd = 0;
+        for (int d = 0; d < maxD; d++) {
+            check.run();
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int kOffset = offset + k;
+                int x = k == -d || (k != d && forward[kOffset - 1] < forward[kOffset + 1])
+                    ? forward[kOffset + 1]
+                    : forward[kOffset - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && left[leftFrom + x] == right[rightFrom + y]) {
+                    x++;
+                    y++;
+                }
+                forward[kOffset] = x;
+                if (x > n) {
+                    forwardEnd += 2;
+                } else if (y > m) {
+                    forwardStart += 2;
+                } else if (odd) {
+                    int backwardOffset = offset + delta - k;
+                    if (backwardOffset >= 0 && backwardOffset < length && backward[backwardOffset] != -1
+                        && x >= n - backward[backwardOffset]) {
+                        split(leftFrom, leftTo, rightFrom, rightTo, x, y);
+                        return;
+                    }
+                }
+            }
+
+            for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                int kOffset = offset + k;
+                int x = k == -d || (k != d && backward[kOffset - 1] < backward[kOffset + 1])
+                    ? backward[kOffset + 1]
+                    : backward[kOffset - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && left[leftTo - x - 1] == right[rightTo - y - 1]) {
+                    x++;
+                    y++;
+                }
+                backward[kOffset] = x;
+                if (x > n) {
+                    backwardEnd += 2;
+                } else if (y > m) {
+                    backwardStart += 2;
+                } else if (!odd) {
+                    int forwardOffset = offset + delta - k;
+                    if (forwardOffset >= 0 && forwardOffset < length && forward[forwardOffset] != -1) {
+                        int forwardX = forward[forwardOffset];
+                        int forwardY = offset + forwardX - forwardOffset;
+                        if (forwardX >= n - x) {
+                            split(leftFrom, leftTo, rightFrom, rightTo, forwardX, forwardY);
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+        // nothing in common
+    }
+
+    private void split(int leftFrom, int leftTo, int rightFrom, int rightTo, int x, int y) {
+        diff(leftFrom, leftFrom + x, rightFrom, rightFrom + y);
+        diff(leftFrom + x, leftTo, rightFrom + y, rightTo);
+    }
+}
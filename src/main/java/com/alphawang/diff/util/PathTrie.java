@@ -0,0 +1,140 @@
+package com.alphawang.diff.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paths such as /orders/123/lines/45/price stored once per distinct prefix, as int node ids.
+ * A path is split at each /, so the empty path and the leading empty segment of /orders share one node.
+ * A node holds its parent id and its segment, segments equal to each other are shared,
+ * and children are found through one open-addressing table of node ids, so a node costs a few ints.
+ * Not thread-safe.
+ */
+public class PathTrie {
+
+    /**
+     * Parent of the first segment of every path, not the id of any path.
+     */
+    private static final int ROOT = 0;
+    private static final char SEPARATOR = '/';
+    private static final int NOT_FOUND = -1;
+
+    private int[] parents = new int[16];
+    private String[] segments = new String[16];
+    private int size = 1;
+    /**
+     * Node id + 1 by hash of (parent, segment), 0 for an empty slot.
+     */
+    private int[] table = new int[32];
+    private final Map<String, String> segmentPool = new HashMap<>();
+
+    /**
+     * @return the id of the path, added if it was not in the trie yet
+     */
+    public int intern(String path) {
+        int node = ROOT;
+        int start = 0;
+        while (start <= path.length()) {
+            int end = segmentEnd(path, start);
+            node = child(node, path.substring(start, end), true);
+            start = end + 1;
+        }
+        return node;
+    }
+
+    /**
+     * @return the id of the path, or -1 if it is not in the trie
+     */
+    public int find(String path) {
+        int node = ROOT;
+        int start = 0;
+        while (start <= path.length()) {
+            int end = segmentEnd(path, start);
+            node = child(node, path.substring(start, end), false);
+            if (node == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            start = end + 1;
+        }
+        return node;
+    }
+
+    /**
+     * The path of a node id, built again from its segments.
+     */
+    public String path(int node) {
+        int depth = 0;
+        int length = 0;
+        for (int n = node; n != ROOT; n = parents[n]) {
+            depth++;
+            length += segments[n].length() + 1;
+        }
+        String[] chain = new String[depth];
+        for (int n = node, i = depth - 1; n != ROOT; n = parents[n], i--) {
+            chain[i] = segments[n];
+        }
+        StringBuilder sb = new StringBuilder(length).append(chain[0]);
+        for (int i = 1; i < depth; i++) {
+            sb.append(SEPARATOR).append(chain[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Number of nodes, node ids are below it.
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int end = path.indexOf(SEPARATOR, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private int child(int parent, String segment, boolean add) {
+        int mask = table.length - 1;
+        int slot = hash(parent, segment) & mask;
+        while (table[slot] != 0) {
+            int node = table[slot] - 1;
+            if (parents[node] == parent && segments[node].equals(segment)) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!add) {
+            return NOT_FOUND;
+        }
+
+        int node = size++;
+        if (node == parents.length) {
+            parents = Arrays.copyOf(parents, node * 2);
+            segments = Arrays.copyOf(segments, node * 2);
+        }
+        parents[node] = parent;
+        segments[node] = segmentPool.computeIfAbsent(segment, s -> s);
+        table[slot] = node + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int node = 1; node < size; node++) {
+            int slot = hash(parents[node], segments[node]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node + 1;
+        }
+    }
+
+    private static int hash(int parent, String segment) {
+        int hash = parent * 0x9E3779B9 + segment.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,166 @@
+package com.alphawang.diff.util;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Comparison of primitive arrays of the same type without boxing their elements.
+ * Floating point elements are compared by their bits, as {@link Double#equals} and {@link Arrays#equals(double[], double[])} do.
+ */
+public class PrimitiveArrays {
+
+    private PrimitiveArrays() { }
+
+    /**
+     * @return whether both are primitive arrays of the same component type
+     */
+    public static boolean isSameType(Object left, Object right) {
+        Class<?> type = left.getClass();
+        return type == right.getClass() && type.isArray() && type.getComponentType().isPrimitive();
+    }
+
+    /**
+     * Whole-array check, see {@link Arrays#equals(long[], long[])}.
+     * @param left primitive array
+     * @param right primitive array of the same type
+     */
+    public static boolean equals(Object left, Object right) {
+        if (left instanceof long[]) {
+            return Arrays.equals((long[]) left, (long[]) right);
+        } else if (left instanceof int[]) {
+            return Arrays.equals((int[]) left, (int[]) right);
+        } else if (left instanceof double[]) {
+            return Arrays.equals((double[]) left, (double[]) right);
+        } else if (left instanceof byte[]) {
+            return Arrays.equals((byte[]) left, (byte[]) right);
+        } else if (left instanceof float[]) {
+            return Arrays.equals((float[]) left, (float[]) right);
+        } else if (left instanceof short[]) {
+            return Arrays.equals((short[]) left, (short[]) right);
+        } else if (left instanceof char[]) {
+            return Arrays.equals((char[]) left, (char[]) right);
+        } else {
+            return Arrays.equals((boolean[]) left, (boolean[]) right);
+        }
+    }
+
+    /**
+     * @return the first index from which the elements differ, or -1
+     */
+    public static int mismatch(Object left, Object right, int from) {
+        int index = scan(left, right, from, false);
+        return index < Array.getLength(left) ? index : -1;
+    }
+
+    /**
+     * @return the first index from which the elements are equal, or the length of the arrays
+     */
+    public static int match(Object left, Object right, int from) {
+        return scan(left, right, from, true);
+    }
+
+    /**
+     * Copy of the elements from until to, e.g. a run of mismatches.
+     */
+    public static Object copyOfRange(Object array, int from, int to) {
+        Object copy = Array.newInstance(array.getClass().getComponentType(), to - from);
+        System.arraycopy(array, from, copy, 0, to - from);
+        return copy;
+    }
+
+    /**
+     * 64-bit hash of the elements, equal arrays in the sense of {@link #equals} have the same hash.
+     * Unlike {@link Arrays#hashCode(long[])} it is not folded to 32 bits, so it can serve as a fingerprint.
+     */
+    public static long hash64(Object array) {
+        long hash = Hashing64.ordered(Hashing64.SEED, Array.getLength(array));
+        if (array instanceof long[]) {
+            for (long element : (long[]) array) {
+                hash = Hashing64.ordered(hash, element);
+            }
+        } else if (array instanceof int[]) {
+            for (int element : (int[]) array) {
+                hash = Hashing64.ordered(hash, element);
+            }
+        } else if (array instanceof double[]) {
+            for (double element : (double[]) array) {
+                hash = Hashing64.ordered(hash, Double.doubleToLongBits(element));
+            }
+        } else if (array instanceof byte[]) {
+            for (byte element : (byte[]) array) {
+                hash = Hashing64.ordered(hash, element);
+            }
+        } else if (array instanceof float[]) {
+            for (float element : (float[]) array) {
+                hash = Hashing64.ordered(hash, Float.floatToIntBits(element));
+            }
+        } else if (array instanceof short[]) {
+            for (short element : (short[]) array) {
+                hash = Hashing64.ordered(hash, element);
+            }
+        } else if (array instanceof char[]) {
+            for (char element : (char[]) array) {
+                hash = Hashing64.ordered(hash, element);
+            }
+        } else {
+            for (boolean element : (boolean[]) array) {
+                hash = Hashing64.ordered(hash, element ? 1 : 0);
+            }
+        }
+        return Hashing64.finish(hash);
+    }
+
+    private static int scan(Object leftObj, Object rightObj, int from, boolean equal) {
+        int i = from;
+        if (leftObj instanceof long[]) {
+            long[] left = (long[]) leftObj;
+            long[] right = (long[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof int[]) {
+            int[] left = (int[]) leftObj;
+            int[] right = (int[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof double[]) {
+            double[] left = (double[]) leftObj;
+            double[] right = (double[]) rightObj;
+            while (i < left.length && (Double.doubleToLongBits(left[i]) == Double.doubleToLongBits(right[i])) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof byte[]) {
+            byte[] left = (byte[]) leftObj;
+            byte[] right = (byte[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof float[]) {
+            float[] left = (float[]) leftObj;
+            float[] right = (float[]) rightObj;
+            while (i < left.length && (Float.floatToIntBits(left[i]) == Float.floatToIntBits(right[i])) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof short[]) {
+            short[] left = (short[]) leftObj;
+            short[] right = (short[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        } else if (leftObj instanceof char[]) {
+            char[] left = (char[]) leftObj;
+            char[] right = (char[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        } else {
+            boolean[] left = (boolean[]) leftObj;
+            boolean[] right = (boolean[]) rightObj;
+            while (i < left.length && (left[i] == right[i]) != equal) {
+                i++;
+            }
+        }
+        return i;
+    }
+}
@@ -69,7 +69,10 @@ public class ReflectionUtils {
     }
 
     public static boolean isSimpleClass(Object obj) {
-        Class clazz = obj.getClass();
+        return isSimpleClass(obj.getClass());
+    }
+
+    public static boolean isSimpleClass(Class clazz) {
         boolean assignableFromNumber = Number.class.isAssignableFrom(clazz);
         return clazz.isPrimitive()
             || assignableFromNumber
@@ -0,0 +1,43 @@
+package com.alphawang.diff.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Bytes allocated by the current thread, through the HotSpot extension of {@link ThreadMXBean} where it is available.
+ * The extension is only referenced once it is known to be there, so this class loads on any JVM.
+ */
+public class ThreadAllocation {
+
+    /**
+     * Null unless it is the HotSpot extension and measures allocations.
+     */
+    private static final ThreadMXBean THREADS = threads();
+
+    private ThreadAllocation() { }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 if the JVM does not measure them
+     */
+    public static long allocatedBytes() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static ThreadMXBean threads() {
+        try {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotSpotThreads = (com.sun.management.ThreadMXBean) threads;
+                if (hotSpotThreads.isThreadAllocatedMemorySupported() && hotSpotThreads.isThreadAllocatedMemoryEnabled()) {
+                    return threads;
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot JVM
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.alphawang.diff.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Factory of virtual threads, looked up by reflection so that the library still runs on JDKs without them.
+ */
+public class VirtualThreads {
+
+    private VirtualThreads() { }
+
+    /**
+     * @param namePrefix threads are named namePrefix0, namePrefix1...
+     * @return a factory of virtual threads, or null if the JDK does not have them or they are not enabled
+     */
+    public static ThreadFactory factory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // before JDK 21, or a preview that is not enabled
+            return null;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.alphawang.diff;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DiffExecutorTest {
+
+    @Test
+    public void testSameResult() throws Exception {
+        ImmutableMap<String, Object> left = ImmutableMap.of("name", "left", "values", Lists.newArrayList(1, 2, 3));
+        ImmutableMap<String, Object> right = ImmutableMap.of("name", "right", "values", Lists.newArrayList(1, 5, 3));
+        ObjectDiff objectDiff = ObjectDiff.newInstance().withLeft(left).withRight(right);
+
+        try (DiffExecutor executor = DiffExecutor.create()) {
+            DiffResult result = objectDiff.diffAsync(executor).get();
+            Assert.assertEquals(objectDiff.diff().getDifferences().keySet(), result.getDifferences().keySet());
+            Assert.assertEquals(0, executor.getDropped());
+        }
+    }
+
+    @Test
+    public void testDropWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ObjectDiffer differ = blockingDiffer(release, new AtomicInteger());
+        AsyncDiffOptions options = AsyncDiffOptions.defaults().withMaxConcurrency(1).withQueueDepth(1).withTimeout(Duration.ofSeconds(10));
+
+        try (DiffExecutor executor = DiffExecutor.create(options)) {
+            CompletableFuture<DiffResult> running = differ.diffAsync(executor, null, new Blocking(), new Blocking());
+            CompletableFuture<DiffResult> queued = differ.diffAsync(executor, null, new Blocking(), new Blocking());
+            CompletableFuture<DiffResult> dropped = differ.diffAsync(executor, null, new Blocking(), new Blocking());
+
+            Assert.assertTrue(dropped.isCompletedExceptionally());
+            assertFailedWith(RejectedExecutionException.class, dropped);
+            Assert.assertEquals(1, executor.getDropped());
+
+            release.countDown();
+            Assert.assertTrue(running.get().hasDifference());
+            Assert.assertTrue(queued.get().hasDifference());
+        }
+    }
+
+    @Test
+    public void testSampleWhenQueueIsHalfFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ObjectDiffer differ = blockingDiffer(release, new AtomicInteger());
+        AsyncDiffOptions options = AsyncDiffOptions.defaults()
+            .withMaxConcurrency(1)
+            .withQueueDepth(4)
+            .withOverloadPolicy(OverloadPolicy.SAMPLE)
+            .withSampleRate(2)
+            .withTimeout(Duration.ofSeconds(10));
+
+        try (DiffExecutor executor = DiffExecutor.create(options)) {
+            List<CompletableFuture<DiffResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(differ.diffAsync(executor, null, new Blocking(), new Blocking()));
+            }
+            // 1 running and 2 queued, then one out of 2 until the queue is full
+            boolean[] takenExpected = {true, true, true, true, false, true, false, false};
+            for (int i = 0; i < takenExpected.length; i++) {
+                Assert.assertEquals("diff " + i, takenExpected[i], !futures.get(i).isCompletedExceptionally());
+            }
+            Assert.assertEquals(3, executor.getDropped());
+            Assert.assertEquals(4, executor.getQueued());
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ObjectDiffer differ = blockingDiffer(release, new AtomicInteger());
+        AsyncDiffOptions options = AsyncDiffOptions.defaults().withMaxConcurrency(1).withTimeout(Duration.ofMillis(50));
+
+        try (DiffExecutor executor = DiffExecutor.create(options)) {
+            CompletableFuture<DiffResult> future = differ.diffAsync(executor, null, new Blocking(), new Blocking());
+            assertFailedWith(TimeoutException.class, future);
+            Assert.assertEquals(1, executor.getTimedOut());
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testTimeoutStopsDiff() throws Exception {
+        AtomicInteger compared = new AtomicInteger();
+        ObjectDiffer differ = ObjectDiff.newInstance()
+            .addTypeDiffer(Blocking.class, (left, right) -> {
+                compared.incrementAndGet();
+                sleep(1);
+                return false;
+            })
+            .toDiffer();
+        List<Blocking> left = new ArrayList<>();
+        List<Blocking> right = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            left.add(new Blocking());
+            right.add(new Blocking());
+        }
+        AsyncDiffOptions options = AsyncDiffOptions.defaults().withTimeout(Duration.ofMillis(50));
+
+        try (DiffExecutor executor = DiffExecutor.create(options)) {
+            assertFailedWith(TimeoutException.class, differ.diffAsync(executor, null, left, right));
+            sleep(1000);
+            int stoppedAt = compared.get();
+            sleep(100);
+            Assert.assertEquals(stoppedAt, compared.get());
+            Assert.assertTrue("compared " + stoppedAt, stoppedAt < left.size() / 2);
+        }
+    }
+
+    @Test
+    public void testTimeoutStopsUnorderedDiff() throws Exception {
+        AtomicInteger hashed = new AtomicInteger();
+        List<Slow> left = new ArrayList<>();
+        List<Slow> right = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            left.add(new Slow(hashed));
+            right.add(new Slow(hashed));
+        }
+        ObjectDiffer differ = ObjectDiff.newInstance().withCollectionDiffMode(CollectionDiffMode.UNORDERED).toDiffer();
+        AsyncDiffOptions options = AsyncDiffOptions.defaults().withTimeout(Duration.ofMillis(50));
+
+        try (DiffExecutor executor = DiffExecutor.create(options)) {
+            assertFailedWith(TimeoutException.class, differ.diffAsync(executor, null, left, right));
+            sleep(1000);
+            int stoppedAt = hashed.get();
+            sleep(100);
+            Assert.assertEquals(stoppedAt, hashed.get());
+            Assert.assertTrue("hashed " + stoppedAt, stoppedAt < left.size());
+            Assert.assertEquals(1, executor.getTimedOut());
+        }
+    }
+
+    @Test
+    public void testClosed() {
+        DiffExecutor executor = DiffExecutor.create();
+        executor.close();
+        assertFailedWith(RejectedExecutionException.class, ObjectDiff.newInstance().withLeft(1).withRight(2).diffAsync(executor));
+        Assert.assertEquals(1, executor.getDropped());
+    }
+
+    private static ObjectDiffer blockingDiffer(CountDownLatch release, AtomicInteger compared) {
+        return ObjectDiff.newInstance()
+            .addTypeDiffer(Blocking.class, (left, right) -> {
+                compared.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            })
+            .toDiffer();
+    }
+
+    private static void assertFailedWith(Class<? extends Exception> expected, CompletableFuture<DiffResult> future) {
+        try {
+            future.get();
+            Assert.fail("Expected " + expected.getSimpleName());
+        } catch (ExecutionException e) {
+            Assert.assertEquals(expected, e.getCause().getClass());
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Slow to hash, so that indexing many of them outlasts the timeout.
+     */
+    static class Slow {
+        private final AtomicInteger hashed;
+
+        Slow(AtomicInteger hashed) {
+            this.hashed = hashed;
+        }
+
+        @Override
+        public int hashCode() {
+            hashed.incrementAndGet();
+            sleep(1);
+            return super.hashCode();
+        }
+    }
+
+    /**
+     * No equals, so every pair is compared by its type differ.
+     */
+    static class Blocking {
+    }
+}
@@ -1,16 +1,27 @@
 package com.alphawang.diff;
 
 import com.alphawang.diff.format.DiffResultFormatter;
+import com.alphawang.diff.format.FormatOptions;
 import com.google.common.base.Function;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 public class DiffResultFormatterTest {
     
@@ -85,4 +96,78 @@ public class DiffResultFormatterTest {
         Assert.assertNotNull(diff);
         Assert.assertEquals("id = 123\n" + "[path] SIZE_NOT_SAME - \n" + " [L] {1=itemId=1, 2=itemId=2}\n" + " [R] {1=itemId=1, 2=itemId=2, 3=itemId=3}\n", diff);
     }
+
+    @Test
+    public void testFormatToAppendable() throws IOException {
+        List<Long> left = LongStream.range(0, 1000).boxed().collect(Collectors.toList());
+        result.add(Difference.of("list", Difference.DifferenceType.SIZE_NOT_SAME, "1000 : 0", left, null));
+        result.add(Difference.of("name", Difference.DifferenceType.VALUE_NOT_EQUALS, Strings.repeat("a", 100), "b"));
+        result.add(Difference.of("array", Difference.DifferenceType.RANGE_NOT_EQUALS, "2", new long[]{1, 2}, new long[]{3, 4}));
+
+        StringWriter writer = new StringWriter();
+        DiffResultFormatter.format(result, null, FormatOptions.unlimited().withMaxElements(3).withMaxValueChars(20), writer);
+
+        Assert.assertEquals("id = 123\n"
+            + "[list] SIZE_NOT_SAME - 1000 : 0\n [L] [0, 1, 2, ... 997 more]\n [R] {}\n"
+            + "[name] VALUE_NOT_EQUALS - \n [L] aaaaaaaaaaaaaaaaaaaa...\n [R] b\n"
+            + "[array] RANGE_NOT_EQUALS - 2\n [L] [1, 2]\n [R] [3, 4]\n", writer.toString());
+    }
+
+    @Test
+    public void testFormatNested() throws IOException {
+        List<Long> values = new ArrayList<Long>(LongStream.range(0, 1000).boxed().collect(Collectors.toList())) {
+            @Override
+            public String toString() {
+                throw new AssertionError("nested values are written element by element");
+            }
+        };
+        result.add(Difference.of("nested", Difference.DifferenceType.VALUE_NOT_EQUALS,
+            ImmutableList.of(ImmutableMap.of("values", values), new int[]{1, 2}), ImmutableList.of(ImmutableList.of())));
+
+        StringWriter writer = new StringWriter();
+        DiffResultFormatter.format(result, null, FormatOptions.unlimited().withMaxElements(3), writer);
+        Assert.assertEquals("id = 123\n"
+            + "[nested] VALUE_NOT_EQUALS - \n [L] [{values=[0, 1, 2, ... 997 more]}, [1, 2]]\n [R] [[]]\n", writer.toString());
+
+        writer = new StringWriter();
+        DiffResultFormatter.format(result, null, FormatOptions.unlimited().withMaxValueChars(20), writer);
+        Assert.assertEquals("id = 123\n"
+            + "[nested] VALUE_NOT_EQUALS - \n [L] [{values=[0, 1, 2, 3...\n [R] [[]]\n", writer.toString());
+    }
+
+    @Test
+    public void testFormatSelfContaining() throws IOException {
+        List<Object> cycle = new ArrayList<>();
+        cycle.add(1);
+        cycle.add(cycle);
+        Map<String, Object> map = new HashMap<>();
+        map.put("self", map);
+        result.add(Difference.of("cycle", Difference.DifferenceType.VALUE_NOT_EQUALS, cycle, map));
+
+        StringWriter writer = new StringWriter();
+        DiffResultFormatter.format(result, null, FormatOptions.unlimited(), writer);
+        Assert.assertEquals("id = 123\n"
+            + "[cycle] VALUE_NOT_EQUALS - \n [L] [1, (this Collection)]\n [R] {self=(this Map)}\n", writer.toString());
+    }
+
+    @Test
+    public void testFormatLongLeafWithLimit() throws IOException {
+        StringBuilder longLeaf = new StringBuilder(Strings.repeat("c", 100000));
+        result.add(Difference.of("long", Difference.DifferenceType.VALUE_NOT_EQUALS, longLeaf, Lists.newArrayList(longLeaf)));
+
+        StringWriter writer = new StringWriter();
+        DiffResultFormatter.format(result, null, FormatOptions.unlimited().withMaxValueChars(10), writer);
+        Assert.assertEquals("id = 123\n"
+            + "[long] VALUE_NOT_EQUALS - \n [L] cccccccccc...\n [R] [ccccccccc...\n", writer.toString());
+    }
+
+    @Test
+    public void testFormatToOutputStream() throws IOException {
+        result.add(Difference.of("name", Difference.DifferenceType.VALUE_NOT_EQUALS, "\u00e9", "e"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DiffResultFormatter.formatTo(result, null, FormatOptions.unlimited(), out);
+
+        Assert.assertEquals(DiffResultFormatter.format(result, null), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
 }
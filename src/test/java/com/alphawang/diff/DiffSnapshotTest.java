@@ -0,0 +1,246 @@
+package com.alphawang.diff;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.alphawang.diff.Difference.DifferenceType.ADDED_KEY;
+import static com.alphawang.diff.Difference.DifferenceType.REMOVED_KEY;
+import static com.alphawang.diff.Difference.DifferenceType.SIZE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.TYPE_NOT_SAME;
+import static com.alphawang.diff.Difference.DifferenceType.VALUE_NOT_EQUALS;
+
+public class DiffSnapshotTest {
+
+    private static final LocalDate CREATED_AT = LocalDate.of(2018, 1, 1);
+
+    @Test
+    public void testSameAsDiff() {
+        MockItems left = items("AAA", new int[]{1, 2, 3}, 1L, 2L);
+        MockItems right = items("BBB", new int[]{1, 0, 3}, 1L, 5L);
+        right.getItemList().get(0).setName("changed");
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        DiffSnapshot snapshot = differ.snapshot(left);
+        Map<String, Difference> expected = differ.diff(left, right).getDifferences();
+        Map<String, Difference> differences = differ.diff(snapshot, right).getDifferences();
+
+        Assert.assertEquals(expected.keySet(), differences.keySet());
+        Assert.assertEquals(VALUE_NOT_EQUALS, differences.get("/memberSrl").getType());
+        Assert.assertEquals("AAA", differences.get("/memberSrl").getLeftValue());
+        Assert.assertEquals(0, differences.get("/intArray/1").getRightValue());
+        Assert.assertEquals(REMOVED_KEY, differences.get("/itemMap/2").getType());
+        Assert.assertEquals(ADDED_KEY, differences.get("/itemMap/5").getType());
+        Assert.assertEquals("changed", differences.get("/itemList/0/name").getRightValue());
+    }
+
+    @Test
+    public void testUnchanged() {
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        DiffSnapshot snapshot = differ.snapshot(items("AAA", new int[]{1}, 1L, 2L));
+
+        Assert.assertFalse(differ.diff(snapshot, items("AAA", new int[]{1}, 1L, 2L)).hasDifference());
+        // the snapshot does not change with the objects it was taken from
+        Assert.assertTrue(differ.diff(snapshot, items("AAA", new int[]{1}, 1L)).hasDifference());
+    }
+
+    @Test
+    public void testKeyFunctionAndIgnorePaths() {
+        MockItems left = items("AAA", null, 1L, 2L);
+        MockItems right = items("BBB", null, 1L, 2L);
+        right.setItemList(Lists.newArrayList(item(2L, null), item(3L, null)));
+
+        ObjectDiffer differ = ObjectDiff.newInstance()
+            .addCollectionItemKeyFunction(MockItem.class, item -> ((MockItem) item).getItemId())
+            .withIgnorePaths(ImmutableList.of("/memberSrl"))
+            .toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(differ.diff(left, right).getDifferences().keySet(), differences.keySet());
+        Assert.assertEquals(REMOVED_KEY, differences.get("/itemList/1").getType());
+        Assert.assertEquals(ADDED_KEY, differences.get("/itemList/3").getType());
+    }
+
+    @Test
+    public void testCycle() {
+        MockNode left = new MockNode("root").addChild(new MockNode("child"));
+        MockNode right = new MockNode("root").addChild(new MockNode("changed"));
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(Lists.newArrayList("/children/0/name"), Lists.newArrayList(differences.keySet()));
+    }
+
+    @Test
+    public void testSharedThenDiverged() {
+        Map<String, Object> shared = ImmutableMap.of("v", 1);
+        Map<String, Object> left = ImmutableMap.of("a", shared, "b", shared);
+        Map<String, Object> right = ImmutableMap.of("a", ImmutableMap.of("v", 1), "b", ImmutableMap.of("v", 2));
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(differ.diff(left, right).getDifferences().keySet(), differences.keySet());
+        Assert.assertEquals(Lists.newArrayList("/b/v"), Lists.newArrayList(differences.keySet()));
+        Assert.assertEquals(1, differences.get("/b/v").getLeftValue());
+
+        // still shared on the right: the pair is only diffed at its first path
+        Map<String, Object> sharedRight = ImmutableMap.of("v", 2);
+        right = ImmutableMap.of("a", sharedRight, "b", sharedRight);
+        Assert.assertEquals(differ.diff(left, right).getDifferences().keySet(), differ.diff(differ.snapshot(left), right).getDifferences().keySet());
+    }
+
+    @Test
+    public void testUnorderedAndSequence() {
+        for (CollectionDiffMode mode : new CollectionDiffMode[]{CollectionDiffMode.UNORDERED, CollectionDiffMode.SEQUENCE}) {
+            ObjectDiffer differ = ObjectDiff.newInstance().withCollectionDiffMode(mode).toDiffer();
+
+            List<Version> left = Lists.newArrayList(new Version(1), new Version(2));
+            List<Version> right = Lists.newArrayList(new Version(2), new Version(1));
+            Assert.assertEquals(mode.name(), differ.diff(left, right).getDifferences().keySet(),
+                differ.diff(differ.snapshot(left), right).getDifferences().keySet());
+
+            List<Object> leftValues = Lists.newArrayList(1, "a", new Version(3), null, 5L);
+            List<Object> rightValues = Lists.newArrayList("a", new Version(4), 2, null, 5L, 6L);
+            Map<String, Difference> expected = differ.diff(leftValues, rightValues).getDifferences();
+            Map<String, Difference> differences = differ.diff(differ.snapshot(leftValues), rightValues).getDifferences();
+            Assert.assertEquals(mode.name(), Lists.newArrayList(expected.keySet()), Lists.newArrayList(differences.keySet()));
+            for (String path : expected.keySet()) {
+                Assert.assertEquals(path, expected.get(path).getType(), differences.get(path).getType());
+            }
+        }
+    }
+
+    @Test
+    public void testUnorderedAndSequenceObjects() {
+        for (CollectionDiffMode mode : new CollectionDiffMode[]{CollectionDiffMode.UNORDERED, CollectionDiffMode.SEQUENCE}) {
+            ObjectDiffer differ = ObjectDiff.newInstance().withCollectionDiffMode(mode).toDiffer();
+
+            List<MockItem> left = Lists.newArrayList(item(1L, "a"), item(2L, "b"), item(4L, "d"));
+            List<MockItem> right = Lists.newArrayList(item(2L, "b"), item(1L, "changed"), item(4L, "d"), item(3L, null));
+            Map<String, Difference> expected = differ.diff(left, right).getDifferences();
+            Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+            Assert.assertEquals(mode.name(), Lists.newArrayList(expected.keySet()), Lists.newArrayList(differences.keySet()));
+            for (String path : expected.keySet()) {
+                Assert.assertEquals(path, expected.get(path).getType(), differences.get(path).getType());
+            }
+        }
+    }
+
+    @Test
+    public void testSameValueRules() {
+        Map<String, Object> left = ImmutableMap.of("price", new BigDecimal("1.0"), "version", new Version(1));
+        Map<String, Object> right = ImmutableMap.of("price", new BigDecimal("1.00"), "version", new Version(1));
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(differ.diff(left, right).getDifferences().keySet(), differences.keySet());
+        Assert.assertEquals(Lists.newArrayList("/price"), Lists.newArrayList(differences.keySet()));
+    }
+
+    @Test
+    public void testKeepsCopies() {
+        Version version = new Version(1);
+        Map<String, Object> left = ImmutableMap.of("version", version);
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        DiffSnapshot snapshot = differ.snapshot(left);
+        version.setNumber(2);
+
+        Assert.assertFalse(differ.diff(snapshot, ImmutableMap.of("version", new Version(1))).hasDifference());
+        Difference difference = differ.diff(snapshot, ImmutableMap.of("version", version)).getDifferences().get("/version");
+        Assert.assertNotSame(version, difference.getLeftValue());
+    }
+
+    @Test
+    public void testKeyFunctionFallback() {
+        MockItems left = items("AAA", null, 1L);
+        MockItems right = items("AAA", null, 1L);
+        right.setItemList(Lists.newArrayList(item(1L, "a"), item(1L, "b")));
+
+        ObjectDiffer differ = ObjectDiff.newInstance()
+            .addCollectionItemKeyFunction(MockItem.class, item -> ((MockItem) item).getItemId())
+            .toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(differ.diff(left, right).getDifferences().keySet(), differences.keySet());
+        Assert.assertEquals(Lists.newArrayList("/itemList/0/name", "/itemList/1/itemId", "/itemList/1/name"),
+            Lists.newArrayList(differences.keySet()));
+    }
+
+    @Test
+    public void testLeftValueSummaries() {
+        Map<String, Object> left = ImmutableMap.of("list", Lists.newArrayList(1, 2), "map", ImmutableMap.of("a", 1));
+        Map<String, Object> right = ImmutableMap.of("list", Lists.newArrayList(1, 2, 3), "map", Lists.newArrayList(1));
+
+        ObjectDiffer differ = ObjectDiff.newInstance().toDiffer();
+        Map<String, Difference> differences = differ.diff(differ.snapshot(left), right).getDifferences();
+
+        Assert.assertEquals(SIZE_NOT_SAME, differences.get("/list").getType());
+        ValueSummary list = (ValueSummary) differences.get("/list").getLeftValue();
+        Assert.assertEquals(ArrayList.class.getName(), list.getType());
+        Assert.assertEquals(2, list.getSize());
+        Assert.assertEquals(TYPE_NOT_SAME, differences.get("/map").getType());
+        Assert.assertNotNull(differences.get("/map").getLeftValue());
+    }
+
+    private static MockItems items(String memberSrl, int[] intArray, Long... itemIds) {
+        Map<Long, MockItem> itemMap = Maps.newLinkedHashMap();
+        for (Long itemId : itemIds) {
+            itemMap.put(itemId, item(itemId, null));
+        }
+        return MockItems.builder()
+            .memberSrl(memberSrl)
+            .id(1000L)
+            .itemList(Lists.newArrayList(item(1L, null), item(2L, null)))
+            .itemMap(itemMap)
+            .intArray(intArray)
+            .build();
+    }
+
+    private static MockItem item(Long itemId, String name) {
+        return MockItem.builder().itemId(itemId).name(name).createdAt(CREATED_AT).build();
+    }
+
+    /**
+     * Comparable value outside of the JDK.
+     */
+    private static final class Version implements Comparable<Version>, Serializable {
+        private int number;
+
+        Version(int number) {
+            this.number = number;
+        }
+
+        void setNumber(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public int compareTo(Version other) {
+            return Integer.compare(number, other.number);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Version && ((Version) o).number == number;
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+    }
+}
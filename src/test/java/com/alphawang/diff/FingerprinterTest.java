@@ -0,0 +1,142 @@
+package com.alphawang.diff;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FingerprinterTest {
+
+    @Test
+    public void testSameStructure() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+
+        Assert.assertEquals(fingerprinter.fingerprint(item(1L, "a")), fingerprinter.fingerprint(item(1L, "a")));
+        Assert.assertNotEquals(fingerprinter.fingerprint(item(1L, "a")), fingerprinter.fingerprint(item(1L, "b")));
+        Assert.assertNotEquals(fingerprinter.fingerprint(item(1L, "a")), fingerprinter.fingerprint(item(2L, "a")));
+        // same String#hashCode
+        Assert.assertNotEquals(fingerprinter.fingerprint(item(1L, "Aa")), fingerprinter.fingerprint(item(1L, "BB")));
+        Assert.assertNotEquals(fingerprinter.fingerprint(new long[]{1, 2}), fingerprinter.fingerprint(new long[]{2, 1}));
+    }
+
+    @Test
+    public void testClasses() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+
+        Assert.assertEquals(fingerprinter.fingerprint(Lists.newArrayList(new Version(1))), fingerprinter.fingerprint(Lists.newArrayList(new Version(1))));
+        Assert.assertNotEquals(fingerprinter.fingerprint(Lists.newArrayList(new Version(1))), fingerprinter.fingerprint(Lists.newArrayList(new Version(2))));
+        Assert.assertNotEquals(fingerprinter.fingerprint(Lists.newArrayList(1, 2)), fingerprinter.fingerprint(Lists.newLinkedList(Lists.newArrayList(1, 2))));
+        Assert.assertNotEquals(fingerprinter.fingerprint(new MockNode("a")), fingerprinter.fingerprint(new Named("a")));
+    }
+
+    @Test
+    public void testMapOrder() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+        Map<String, Object> left = new LinkedHashMap<>();
+        left.put("a", item(1L, "a"));
+        left.put("b", Lists.newArrayList(1, 2));
+        Map<String, Object> right = new LinkedHashMap<>();
+        right.put("b", Lists.newArrayList(1, 2));
+        right.put("a", item(1L, "a"));
+
+        Assert.assertEquals(fingerprinter.fingerprint(left), fingerprinter.fingerprint(right));
+        Assert.assertNotEquals(fingerprinter.fingerprint(ImmutableMap.of("a", 1, "b", 2)), fingerprinter.fingerprint(ImmutableMap.of("a", 2, "b", 1)));
+        Assert.assertNotEquals(fingerprinter.fingerprint(Lists.newArrayList(1, 2)), fingerprinter.fingerprint(Lists.newArrayList(2, 1)));
+    }
+
+    @Test
+    public void testCycle() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+        MockNode left = new MockNode("root").addChild(new MockNode("child"));
+        MockNode right = new MockNode("root").addChild(new MockNode("child"));
+        MockNode changed = new MockNode("root").addChild(new MockNode("changed"));
+
+        Assert.assertEquals(fingerprinter.fingerprint(left), fingerprinter.fingerprint(right));
+        Assert.assertNotEquals(fingerprinter.fingerprint(left), fingerprinter.fingerprint(changed));
+    }
+
+    @Test
+    public void testCycleFromInside() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+        MockNode left = new MockNode("root").addChild(new MockNode("child"));
+        MockNode right = new MockNode("root").addChild(new MockNode("child"));
+        MockNode changed = new MockNode("changed").addChild(new MockNode("child"));
+        Assert.assertEquals(fingerprinter.fingerprint(right), fingerprinter.fingerprint(left));
+        Assert.assertNotEquals(fingerprinter.fingerprint(changed), fingerprinter.fingerprint(left));
+
+        // from their root, the children only reference it back, which does not tell the roots apart from the children
+        Assert.assertEquals(fingerprinter.fingerprint(right.getChildren().get(0)), fingerprinter.fingerprint(left.getChildren().get(0)));
+        Assert.assertNotEquals(fingerprinter.fingerprint(changed.getChildren().get(0)), fingerprinter.fingerprint(left.getChildren().get(0)));
+    }
+
+    @Test
+    public void testDiffSkipsSameFingerprints() {
+        Fingerprinter fingerprinter = Fingerprinter.create();
+        MockNode left = new MockNode("root").addChild(new MockNode("child")).addChild(new MockNode("other"));
+        MockNode right = new MockNode("root").addChild(new MockNode("child")).addChild(new MockNode("other"));
+        fingerprinter.fingerprint(left);
+        fingerprinter.fingerprint(right);
+        MockNode child = right.getChildren().get(0);
+        child.setName("changed");
+
+        ObjectDiff objectDiff = ObjectDiff.newInstance()
+            .withLeft(left)
+            .withRight(right)
+            .withEqualsSkippedClasses(ImmutableSet.of(MockNode.class, List.class))
+            .withFingerprinter(fingerprinter);
+        // the cached fingerprint of right is stale, so the change is not seen
+        Assert.assertTrue(objectDiff.diff().getDifferences().isEmpty());
+
+        fingerprinter.invalidate(right);
+        fingerprinter.invalidate(right.getChildren());
+        fingerprinter.invalidate(child);
+        Map<String, Difference> differences = objectDiff.diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/children/0/name"), Lists.newArrayList(differences.keySet()));
+    }
+
+    private static MockItem item(Long itemId, String name) {
+        return MockItem.builder().itemId(itemId).name(name).createdAt(LocalDate.of(2018, 1, 1)).build();
+    }
+
+    private static final class Version implements Comparable<Version> {
+        private final int number;
+
+        Version(int number) {
+            this.number = number;
+        }
+
+        @Override
+        public int compareTo(Version other) {
+            return Integer.compare(number, other.number);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Version && ((Version) o).number == number;
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+    }
+
+    /**
+     * Same fields as {@link MockNode}.
+     */
+    private static final class Named {
+        private final String name;
+        private MockNode parent;
+        private final List<MockNode> children = Lists.newArrayList();
+
+        Named(String name) {
+            this.name = name;
+        }
+    }
+}
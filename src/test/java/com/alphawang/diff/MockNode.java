@@ -0,0 +1,26 @@
+package com.alphawang.diff;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ToString(exclude = "parent")
+public class MockNode {
+
+    private String name;
+    private MockNode parent;
+    private List<MockNode> children = new ArrayList<>();
+
+    public MockNode(String name) {
+        this.name = name;
+    }
+
+    public MockNode addChild(MockNode child) {
+        child.setParent(this);
+        children.add(child);
+        return this;
+    }
+}
@@ -1,19 +1,30 @@
 package com.alphawang.diff;
 
+import com.alphawang.diff.type.TypeDiffers;
 import com.google.common.base.Function;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 
 public class ObjectDiffTest {
@@ -158,7 +169,8 @@ public class ObjectDiffTest {
     public void testDiffCollectionLongWithKeyFunction() {
         rightItems.getItemList().get(0).setItemId(11L);
 
-        String diffPath_collection = "/itemList/1";
+        String diffPath_removed = "/itemList/1";
+        String diffPath_added = "/itemList/11";
 
         DiffResult diffResult = ObjectDiff.newInstance()
             .withIdentities(identities)
@@ -170,14 +182,36 @@ public class ObjectDiffTest {
         Assert.assertTrue(diffResult.hasDifference());
 
         Map<String, Difference> differences = diffResult.getDifferences();
-        Assert.assertTrue(differences.size() == 1);
-        Assert.assertTrue(differences.containsKey(diffPath_collection));
+        Assert.assertTrue(differences.size() == 2);
 
-        Difference difference = differences.get(diffPath_collection);
-        Assert.assertEquals(diffPath_collection, difference.getPath());
-        Assert.assertEquals(Difference.DifferenceType.NULL_VS_NONNULL, difference.getType());
-        Assert.assertNotNull(difference.getLeftValue());
-        Assert.assertNull( difference.getRightValue());
+        Difference removed = differences.get(diffPath_removed);
+        Assert.assertEquals(Difference.DifferenceType.REMOVED_KEY, removed.getType());
+        Assert.assertNotNull(removed.getLeftValue());
+        Assert.assertNull(removed.getRightValue());
+
+        Difference added = differences.get(diffPath_added);
+        Assert.assertEquals(Difference.DifferenceType.ADDED_KEY, added.getType());
+        Assert.assertNull(added.getLeftValue());
+        Assert.assertNotNull(added.getRightValue());
+    }
+
+    @Test
+    public void testDiffCollectionSizeWithKeyFunction() {
+        List<MockItem> items = Lists.newArrayList(rightItems.getItemList());
+        items.add(MockItem.builder().itemId(3L).build());
+        items.get(0).setName("changed");
+        rightItems.setItemList(items);
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .addCollectionItemKeyFunction(MockItem.class, (Function<MockItem, Long>) input -> input.getItemId())
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(2, differences.size());
+        Assert.assertEquals(Difference.DifferenceType.ADDED_KEY, differences.get("/itemList/3").getType());
+        Assert.assertTrue(differences.containsKey("/itemList/1/name"));
     }
 
     @Test
@@ -304,6 +338,30 @@ public class ObjectDiffTest {
         Assert.assertEquals(diffPath_collection1, difference.getPath());
     }
 
+    @Test
+    public void testDiffIgnoreGlob() {
+        Date newDate = new Date();
+        newDate.setYear(2000);
+        rightItems.getItemList().get(0).setModifiedAt(newDate);
+        rightItems.getItemList().get(1).setModifiedAt(newDate);
+        rightItems.getItemList().get(0).setItemId(11L);
+
+        String diffPath_collection1 = "/itemList/0/itemId";
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withIdentities(identities)
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withIgnoreGlobs(Lists.newArrayList("/itemList/*/modifiedAt"))
+            .diff();
+        Assert.assertNotNull(diffResult);
+        Assert.assertTrue(diffResult.hasDifference());
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertTrue(differences.size() == 1);
+        Assert.assertTrue(differences.containsKey(diffPath_collection1));
+    }
+
     @Test
     public void testDiffCollectionDateWithKeyFunction() {
         Date newDate = new Date();
@@ -480,6 +538,136 @@ public class ObjectDiffTest {
         Assert.assertEquals(11111L, difference.getRightValue());
     }
 
+    @Test
+    public void testDiffMapKeys() {
+        rightItems.getItemMap().remove(4L);
+        rightItems.getItemMap().put(6L, MockItem.builder().itemId(6L).build());
+        rightItems.getItemMap().put(7L, MockItem.builder().itemId(7L).build());
+        rightItems.getItemMap().get(3L).setItemId(33L);
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withIgnorePaths(Lists.newArrayList("/itemMap/7"))
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(3, differences.size());
+        Assert.assertEquals(Difference.DifferenceType.REMOVED_KEY, differences.get("/itemMap/4").getType());
+        Assert.assertNull(differences.get("/itemMap/4").getRightValue());
+        Assert.assertEquals(Difference.DifferenceType.ADDED_KEY, differences.get("/itemMap/6").getType());
+        Assert.assertNull(differences.get("/itemMap/6").getLeftValue());
+        Assert.assertEquals(33L, differences.get("/itemMap/3/itemId").getRightValue());
+    }
+
+    @Test
+    public void testCycle() {
+        MockNode left = new MockNode("root").addChild(new MockNode("child"));
+        MockNode right = new MockNode("root").addChild(new MockNode("changed"));
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(left)
+            .withRight(right)
+            .withEqualsSkippedClasses(ImmutableSet.of(MockNode.class, List.class))
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(1, differences.size());
+        Assert.assertEquals("changed", differences.get("/children/0/name").getRightValue());
+    }
+
+    @Test
+    public void testSharedSubtree() {
+        MockNode leftChild = new MockNode("child");
+        MockNode rightChild = new MockNode("changed");
+        MockNode left = new MockNode("root");
+        left.setChildren(Lists.newArrayList(leftChild, leftChild));
+        MockNode right = new MockNode("root");
+        right.setChildren(Lists.newArrayList(rightChild, rightChild));
+
+        Map<String, Difference> differences = ObjectDiff.newInstance().withLeft(left).withRight(right).diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/children/0/name"), Lists.newArrayList(differences.keySet()));
+    }
+
+    @Test
+    public void testDifferIsReused() {
+        ObjectDiff objectDiff = ObjectDiff.newInstance().withLeft(ImmutableMap.of("a", 1, "b", 2)).withRight(ImmutableMap.of("a", 2, "b", 3));
+        ObjectDiffer differ = objectDiff.toDiffer();
+        Assert.assertEquals(2, objectDiff.diff().getDifferences().size());
+        Assert.assertSame(differ, objectDiff.withLeft(ImmutableMap.of("a", 3, "b", 4)).withIdentities(ImmutableMap.of("id", 1)).toDiffer());
+        Assert.assertNotSame(differ, objectDiff.withMaxDifferences(1).toDiffer());
+        Assert.assertEquals(1, objectDiff.diff().getDifferences().size());
+    }
+
+    @Test
+    public void testStaticFields() {
+        for (ObjectDiff objectDiff : Lists.newArrayList(ObjectDiff.newInstance(), ObjectDiff.newInstance().withFingerprinter(Fingerprinter.create()))) {
+            DiffResult result = objectDiff.withLeft(new WithConstants(1L, "a")).withRight(new WithConstants(2L, "b")).diff();
+            Assert.assertEquals(Lists.newArrayList("/id", "/name"), Lists.newArrayList(result.getDifferences().keySet()));
+        }
+    }
+
+    @Test
+    public void testDeepNesting() {
+        int depth = 100_000;
+        Object[] left = {1};
+        Object[] right = {2};
+        for (int i = 0; i < depth; i++) {
+            left = new Object[]{left};
+            right = new Object[]{right};
+        }
+
+        Map<String, Difference> differences = ObjectDiff.newInstance().withLeft(left).withRight(right).diff().getDifferences();
+        Assert.assertEquals(1, differences.size());
+        Difference difference = differences.values().iterator().next();
+        Assert.assertEquals(depth * 2 + 2, difference.getPath().length());
+        Assert.assertEquals(1, difference.getLeftValue());
+    }
+
+    @Test
+    public void testDeepMapsAndLists() {
+        int depth = 200_000;
+        Map<String, Object> left = Maps.newHashMap(ImmutableMap.of("v", 1));
+        Map<String, Object> right = Maps.newHashMap(ImmutableMap.of("v", 2));
+        List<Object> leftList = Lists.newArrayList(1);
+        List<Object> rightList = Lists.newArrayList(2);
+        for (int i = 0; i < depth; i++) {
+            left = Maps.newHashMap(ImmutableMap.of("next", left));
+            right = Maps.newHashMap(ImmutableMap.of("next", right));
+            leftList = Lists.newArrayList(leftList);
+            rightList = Lists.newArrayList(rightList);
+        }
+
+        Map<String, Difference> differences = ObjectDiff.newInstance().withLeft(left).withRight(right).diff().getDifferences();
+        Assert.assertEquals(1, differences.size());
+        Assert.assertEquals(depth * "/next".length() + "/v".length(), differences.keySet().iterator().next().length());
+
+        differences = ObjectDiff.newInstance().withLeft(leftList).withRight(rightList).diff().getDifferences();
+        Assert.assertEquals(1, differences.size());
+        Assert.assertEquals(2, differences.values().iterator().next().getRightValue());
+    }
+
+    @Test
+    public void testTypeDiffer() {
+        Instant instant = Instant.parse("2020-01-01T00:00:00.100Z");
+        Map<String, Object> left = ImmutableMap.of(
+            "price", 1.0001, "amount", new BigDecimal("1.10"), "at", instant, "count", 1.0);
+        Map<String, Object> right = ImmutableMap.of(
+            "price", 1.0002, "amount", new BigDecimal("1.1"), "at", instant.plusMillis(100), "count", 1);
+
+        Map<String, Difference> differences = ObjectDiff.newInstance().withLeft(left).withRight(right).diff().getDifferences();
+        Assert.assertEquals(4, differences.size());
+
+        differences = ObjectDiff.newInstance()
+            .withLeft(left)
+            .withRight(right)
+            .addTypeDiffer(Double.class, TypeDiffers.tolerance(0.001))
+            .addTypeDiffer(BigDecimal.class, TypeDiffers.comparing(BigDecimal::compareTo))
+            .addTypeDiffer(Instant.class, TypeDiffers.truncatedTo(ChronoUnit.SECONDS))
+            .diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/count"), Lists.newArrayList(differences.keySet()));
+    }
+
     @Test
     public void testRootArray() {
         DiffResult diffResult = ObjectDiff.newInstance().withLeft(new int[]{1, 2}).withRight(new int[]{1, 3}).diff();
@@ -497,6 +685,31 @@ public class ObjectDiffTest {
         Assert.assertEquals(3, difference.getRightValue());
     }
 
+    @Test
+    public void testPrimitiveArray() {
+        long[] left = {1, 2, 3, 4, 5, 6, 7};
+        long[] right = {1, 0, 0, 0, 5, 6, 0};
+
+        Map<String, Difference> differences = ObjectDiff.newInstance().withLeft(left).withRight(right).diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/1", "/2", "/3", "/6"), Lists.newArrayList(differences.keySet()));
+        Assert.assertEquals(2L, differences.get("/1").getLeftValue());
+        Assert.assertEquals(0L, differences.get("/1").getRightValue());
+
+        differences = ObjectDiff.newInstance().withLeft(left).withRight(right)
+            .withIgnorePaths(Lists.newArrayList("/2"))
+            .withGroupArrayMismatches(true)
+            .diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/1", "/3", "/6"), Lists.newArrayList(differences.keySet()));
+
+        differences = ObjectDiff.newInstance().withLeft(left).withRight(right).withGroupArrayMismatches(true).diff().getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/1..3", "/6"), Lists.newArrayList(differences.keySet()));
+        Difference range = differences.get("/1..3");
+        Assert.assertEquals(Difference.DifferenceType.RANGE_NOT_EQUALS, range.getType());
+        Assert.assertEquals("3", range.getSummary());
+        Assert.assertArrayEquals(new long[]{2, 3, 4}, (long[]) range.getLeftValue());
+        Assert.assertArrayEquals(new long[]{0, 0, 0}, (long[]) range.getRightValue());
+    }
+
     @Test
     public void testRootArray_empty() {
         DiffResult diffResult = ObjectDiff.newInstance().withLeft(new int[]{1, 2}).withRight(new int[]{}).diff();
@@ -513,5 +726,315 @@ public class ObjectDiffTest {
         Assert.assertEquals(Difference.DifferenceType.SIZE_NOT_SAME, difference.getType());
     }
 
+    @Test
+    public void testParallel() {
+        List<MockItem> leftList = Lists.newArrayList();
+        List<MockItem> rightList = Lists.newArrayList();
+        Map<Long, MockItem> leftMap = Maps.newHashMap();
+        Map<Long, MockItem> rightMap = Maps.newHashMap();
+        for (long i = 0; i < 100; i++) {
+            leftList.add(MockItem.builder().itemId(i).name("name" + i).build());
+            rightList.add(MockItem.builder().itemId(i).name(i % 7 == 0 ? "changed" + i : "name" + i).build());
+            leftMap.put(i, MockItem.builder().itemId(i).name("name" + i).build());
+            rightMap.put(i, MockItem.builder().itemId(i % 5 == 0 ? -i : i).name("name" + i).build());
+        }
+        leftItems.setItemList(leftList);
+        rightItems.setItemList(rightList);
+        leftItems.setItemMap(leftMap);
+        rightItems.setItemMap(rightMap);
+
+        DiffResult sequential = ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).diff();
+        DiffResult parallel = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withParallelism(new ForkJoinPool(4))
+            .withParallelThreshold(3)
+            .diff();
+
+        Assert.assertEquals(15 + 19, sequential.getDifferences().size());
+        Assert.assertEquals(Lists.newArrayList(sequential.getDifferences().keySet()), Lists.newArrayList(parallel.getDifferences().keySet()));
+
+        // a subtree shared by several ranges is only diffed where the sequential diff first reaches it, whatever the scheduling
+        Map<String, Object> leftShared = ImmutableMap.of("v", 1);
+        Map<String, Object> rightShared = ImmutableMap.of("v", 2);
+        List<Object> left = Lists.newArrayList();
+        List<Object> right = Lists.newArrayList();
+        for (int i = 0; i < 4000; i++) {
+            left.add(i % 1000 == 999 ? leftShared : i);
+            right.add(i % 1000 == 999 ? rightShared : i);
+        }
+        left.set(2500, 1);
+        right.set(2500, 2);
+        Map<String, Object> leftRoot = ImmutableMap.of("items", left, "after", leftShared);
+        Map<String, Object> rightRoot = ImmutableMap.of("items", right, "after", rightShared);
+        ObjectDiffer parallelDiffer = ObjectDiff.newInstance().withParallelism(new ForkJoinPool(8)).withParallelThreshold(16).toDiffer();
+        List<String> expected = Lists.newArrayList(ObjectDiff.newInstance().toDiffer().diff(leftRoot, rightRoot).getDifferences().keySet());
+        Assert.assertEquals(Lists.newArrayList("/items/999/v", "/items/2500"), expected);
+        for (int run = 0; run < 20; run++) {
+            Assert.assertEquals(expected, Lists.newArrayList(parallelDiffer.diff(leftRoot, rightRoot).getDifferences().keySet()));
+        }
+    }
+
+    @Test
+    public void testDiffAll() {
+        List<DiffPair> pairs = Lists.newArrayList();
+        for (long i = 0; i < 200; i++) {
+            MockItem left = MockItem.builder().itemId(i).name("name" + i).build();
+            MockItem right = MockItem.builder().itemId(i).name(i % 2 == 0 ? "name" + i : "changed").build();
+            pairs.add(DiffPair.of(ImmutableMap.of("itemId", i), left, right));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ObjectDiffer sequential = ObjectDiff.newInstance().withIgnorePaths(Lists.newArrayList("/createdAt")).toDiffer();
+        ObjectDiffer concurrent = ObjectDiff.newInstance()
+            .withIgnorePaths(Lists.newArrayList("/createdAt"))
+            .withExecutor(executor)
+            .withBatchConcurrency(8)
+            .toDiffer();
+
+        List<DiffResult> sequentialResults = sequential.diffAll(pairs).collect(Collectors.toList());
+        List<DiffResult> concurrentResults = concurrent.diffAll(pairs.stream()).collect(Collectors.toList());
+        executor.shutdown();
+
+        Assert.assertEquals(200, sequentialResults.size());
+        Assert.assertEquals(200, concurrentResults.size());
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(ImmutableMap.of("itemId", (long) i), concurrentResults.get(i).getIdentities());
+            Assert.assertEquals(i % 2 == 1, concurrentResults.get(i).hasDifference());
+            Assert.assertEquals(sequentialResults.get(i).getDifferences().keySet(), concurrentResults.get(i).getDifferences().keySet());
+        }
+    }
+
+    @Test
+    public void testDiffListener() {
+        rightItems.getItemList().get(0).setItemId(11L);
+        rightItems.setId(2000L);
+
+        List<String> paths = Lists.newArrayList();
+        ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).diff(difference -> paths.add(difference.getPath()));
+
+        DiffResult diffResult = ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).diff();
+        Assert.assertEquals(Lists.newArrayList("/id", "/itemList/0/itemId"), paths);
+        Assert.assertEquals(paths, Lists.newArrayList(diffResult.getDifferences().keySet()));
+    }
+
+    @Test
+    public void testMaxDifferences() {
+        rightItems.setMemberSrl("BBB");
+        rightItems.setId(2000L);
+        rightItems.getItemList().get(0).setItemId(11L);
+        rightItems.getItemList().get(1).setItemId(12L);
+
+        DiffResult limited = ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).withMaxDifferences(2).diff();
+        Assert.assertTrue(limited.isTruncated());
+        Assert.assertEquals(Lists.newArrayList("/memberSrl", "/id"), Lists.newArrayList(limited.getDifferences().keySet()));
+
+        DiffResult exact = ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).withMaxDifferences(4).diff();
+        Assert.assertFalse(exact.isTruncated());
+        Assert.assertEquals(4, exact.getDifferences().size());
+
+        DiffResult parallel = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withParallelism(new ForkJoinPool(2))
+            .withParallelThreshold(1)
+            .withMaxDifferences(3)
+            .diff();
+        Assert.assertTrue(parallel.isTruncated());
+        Assert.assertEquals(Lists.newArrayList("/memberSrl", "/id", "/itemList/0/itemId"), Lists.newArrayList(parallel.getDifferences().keySet()));
+    }
+
+    @Test
+    public void testIsDifferent() {
+        Assert.assertFalse(ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).isDifferent());
+
+        rightItems.getItemMap().get(4L).setItemId(11111L);
+        Assert.assertTrue(ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).isDifferent());
+    }
+
+    @Test
+    public void testDiffCollectionUnordered() {
+        leftItems.setItemList(Lists.newArrayList(
+            MockItem.builder().itemId(1L).build(),
+            MockItem.builder().itemId(2L).build(),
+            MockItem.builder().itemId(2L).build(),
+            MockItem.builder().itemId(3L).build()));
+        rightItems.setItemList(Lists.newArrayList(
+            MockItem.builder().itemId(0L).build(),
+            MockItem.builder().itemId(3L).build(),
+            MockItem.builder().itemId(2L).build(),
+            MockItem.builder().itemId(1L).build()));
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withCollectionDiffMode(CollectionDiffMode.UNORDERED)
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/itemList/2", "/itemList/+0"), Lists.newArrayList(differences.keySet()));
+        Assert.assertEquals(Difference.DifferenceType.REMOVED, differences.get("/itemList/2").getType());
+        Assert.assertEquals(2L, ((MockItem) differences.get("/itemList/2").getLeftValue()).getItemId().longValue());
+        Assert.assertEquals(Difference.DifferenceType.ADDED, differences.get("/itemList/+0").getType());
+        Assert.assertEquals(0L, ((MockItem) differences.get("/itemList/+0").getRightValue()).getItemId().longValue());
+    }
+
+    @Test
+    public void testDiffCollectionUnorderedWithDuplicateKey() {
+        rightItems.getItemList().add(MockItem.builder().itemId(1L).modifiedAt(date).createdAt(localDate).build());
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .addCollectionItemKeyFunction(MockItem.class, (Function<MockItem, Long>) input -> input.getItemId())
+            .withCollectionDiffMode(CollectionDiffMode.UNORDERED)
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/itemList/+2"), Lists.newArrayList(differences.keySet()));
+    }
+
+    @Test
+    public void testDiffCollectionSequence() {
+        List<MockItem> items = Lists.newArrayList();
+        for (long i = 0; i < 10; i++) {
+            items.add(MockItem.builder().itemId(i).name("name" + i).build());
+        }
+        List<MockItem> changed = Lists.newArrayList(items);
+        changed.add(0, MockItem.builder().itemId(100L).name("inserted").build());
+        changed.remove(5);
+        changed.set(7, MockItem.builder().itemId(7L).name("changed").build());
+        leftItems.setItemList(items);
+        rightItems.setItemList(changed);
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withCollectionDiffMode(CollectionDiffMode.SEQUENCE)
+            .diff();
+
+        Map<String, Difference> differences = diffResult.getDifferences();
+        Assert.assertEquals(Lists.newArrayList("/itemList/+0", "/itemList/4", "/itemList/7/name"), Lists.newArrayList(differences.keySet()));
+        Assert.assertEquals(Difference.DifferenceType.ADDED, differences.get("/itemList/+0").getType());
+        Assert.assertEquals(Difference.DifferenceType.REMOVED, differences.get("/itemList/4").getType());
+        Assert.assertEquals("changed", differences.get("/itemList/7/name").getRightValue());
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testMetrics() {
+        rightItems.getItemList().get(0).setName("changed");
+        rightItems.setMemberSrl("BBB");
+        List<DiffMetrics> published = Lists.newArrayList();
+
+        DiffResult diffResult = ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withIgnorePaths(ImmutableList.of("/memberSrl"))
+            .withMetrics(published::add)
+            .diff();
+
+        DiffMetrics metrics = diffResult.getMetrics();
+        Assert.assertEquals(ImmutableList.of(metrics), published);
+        Assert.assertEquals(1, metrics.getIgnoredPaths());
+        Assert.assertEquals(1, metrics.getMaps());
+        Assert.assertEquals(1, metrics.getCollections());
+        // root and the 2 list items, the equal map is not walked
+        Assert.assertEquals(3, metrics.getObjects());
+        Assert.assertTrue(metrics.getSimples() > 0);
+        Assert.assertTrue(metrics.getMaxDepth() >= 3);
+        Assert.assertTrue(metrics.getElapsedNanos() > 0);
+
+        Assert.assertNull(ObjectDiff.newInstance().withLeft(leftItems).withRight(rightItems).diff().getMetrics());
+    }
+
+    @Test
+    public void testProfiler() {
+        rightItems.getItemList().get(0).setName("changed");
+        rightItems.getItemList().get(1).setName("changed");
+        DiffProfiler profiler = new DiffProfiler();
+
+        ObjectDiff.newInstance()
+            .withLeft(leftItems)
+            .withRight(rightItems)
+            .withProfiler(profiler)
+            .diff();
+
+        Map<String, PathProfile> profiles = profiler.top(100).stream()
+            .collect(Collectors.toMap(PathProfile::getTemplate, profile -> profile));
+        Assert.assertFalse(profiles.containsKey(""));
+        Assert.assertNotEquals("", profiler.top(1).get(0).getTemplate());
+        Assert.assertEquals(2, profiles.get("/itemList/*").getVisits());
+        Assert.assertEquals(2, profiles.get("/itemList/*/name").getVisits());
+        Assert.assertEquals(2, profiles.get("/itemList/*/name").getDifferences());
+        Assert.assertTrue(profiles.get("/itemList").getNanos() >= profiles.get("/itemList/*/name").getNanos());
+        profiler.reset();
+        Assert.assertTrue(profiler.top(100).isEmpty());
+    }
+
+    @Test
+    public void testValueRetention() {
+        List<Integer> leftValues = Lists.newArrayList(Collections.nCopies(1000, 1));
+        Map<String, Object> left = ImmutableMap.of("values", leftValues, "name", "left");
+        Map<String, Object> right = ImmutableMap.of("values", Lists.newArrayList(1, 2), "name", "right");
+
+        DiffResult summarized = ObjectDiff.newInstance()
+            .withLeft(left)
+            .withRight(right)
+            .withValueRetention(ValueRetention.SUMMARY)
+            .withRootsRetained(false)
+            .diff();
+        Assert.assertNull(summarized.getLeft());
+        Assert.assertNull(summarized.getRight());
+        ValueSummary summary = (ValueSummary) summarized.getDifferences().get("/values").getLeftValue();
+        Assert.assertEquals(1000, summary.getSize());
+        Assert.assertTrue(summary.getPreview().length() <= ValueSummary.PREVIEW_CHARS + 3);
+        Assert.assertEquals("left", summarized.getDifferences().get("/name").getLeftValue());
+
+        ValueSummary longElement = ValueSummary.of(Lists.newArrayList("a", Strings.repeat("b", 10000)));
+        Assert.assertEquals("[a, " + Strings.repeat("b", ValueSummary.PREVIEW_CHARS - 4) + "...", longElement.getPreview());
+
+        DiffResult weak = ObjectDiff.newInstance().withLeft(left).withRight(right).withValueRetention(ValueRetention.WEAK).diff();
+        Assert.assertSame(leftValues, weak.getDifferences().get("/values").getLeftValue());
+
+        DiffResult none = ObjectDiff.newInstance().withLeft(left).withRight(right).withValueRetention(ValueRetention.NONE).diff();
+        Assert.assertNull(none.getDifferences().get("/values").getLeftValue());
+        Assert.assertEquals("1000 : 2", none.getDifferences().get("/values").getSummary());
+        Assert.assertSame(left, none.getLeft());
+    }
+
+    @Test
+    public void testCompactResults() {
+        Map<String, Object> left = ImmutableMap.of("values", Lists.newArrayList(1, 2, 3), "name", "left", "date", new Date(0L));
+        Map<String, Object> right = ImmutableMap.of("values", Lists.newArrayList(1, 5, 3, 4), "name", "right", "date", new Date(1L));
+
+        DiffResult expected = ObjectDiff.newInstance().withLeft(left).withRight(right).diff();
+        DiffResult compact = ObjectDiff.newInstance().withLeft(left).withRight(right).withCompactResults(true).diff();
+        Assert.assertEquals(Lists.newArrayList(expected.getDifferences().keySet()), Lists.newArrayList(compact.getDifferences().keySet()));
+        for (String path : expected.getDifferences().keySet()) {
+            Assert.assertTrue(compact.getDifferences().containsKey(path));
+            Assert.assertEquals(expected.getDifferences().get(path).toString(), compact.getDifferences().get(path).toString());
+        }
+        Assert.assertFalse(compact.getDifferences().containsKey("/values/0"));
+        Assert.assertNull(compact.getDifferences().get("/unknown"));
+
+        // a difference added again at a path replaces the previous one and keeps its position
+        String first = compact.getDifferences().keySet().iterator().next();
+        compact.add(Difference.of(first, Difference.DifferenceType.VALUE_NOT_EQUALS, "a", "b"));
+        Assert.assertEquals(expected.getDifferences().size(), compact.getDifferences().size());
+        Assert.assertEquals(first, compact.getDifferences().keySet().iterator().next());
+        Assert.assertEquals("b", compact.getDifferences().get(first).getRightValue());
+    }
+
+    @Slf4j
+    private static class WithConstants {
+        private static final String CONSTANT = "constant";
+
+        private final Long id;
+        private final String name;
+
+        WithConstants(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
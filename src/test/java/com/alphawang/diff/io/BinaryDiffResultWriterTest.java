@@ -0,0 +1,127 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.alphawang.diff.Difference;
+import com.alphawang.diff.Difference.DifferenceType;
+import com.alphawang.diff.format.FormatOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class BinaryDiffResultWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    static DiffResult result(int id) {
+        DiffResult diffResult = new DiffResult(ImmutableMap.of("id", id), null, null);
+        diffResult.add(Difference.of("/name", DifferenceType.VALUE_NOT_EQUALS, "name" + id, "é\n\"" + id));
+        diffResult.add(Difference.of("/items/" + id, DifferenceType.REMOVED_KEY, Arrays.asList(id, id), null));
+        diffResult.add(Difference.of("/items", DifferenceType.SIZE_NOT_SAME, "2 : 1", Strings.repeat("x", 100), "y"));
+        if (id % 2 == 0) {
+            diffResult.markTruncated();
+        }
+        return diffResult;
+    }
+
+    static void assertResult(int id, DiffResult diffResult) {
+        Assert.assertEquals(ImmutableMap.of("id", String.valueOf(id)), diffResult.getIdentities());
+        Assert.assertEquals(id % 2 == 0, diffResult.isTruncated());
+        Assert.assertEquals(Arrays.asList("/name", "/items/" + id, "/items"), Arrays.asList(diffResult.getDifferences().keySet().toArray()));
+
+        Difference name = diffResult.getDifferences().get("/name");
+        Assert.assertEquals(DifferenceType.VALUE_NOT_EQUALS, name.getType());
+        Assert.assertNull(name.getSummary());
+        Assert.assertEquals("é\n\"" + id, name.getRightValue());
+
+        Difference removed = diffResult.getDifferences().get("/items/" + id);
+        Assert.assertEquals("[" + id + ", " + id + "]", removed.getLeftValue());
+        Assert.assertNull(removed.getRightValue());
+
+        Assert.assertEquals("2 : 1", diffResult.getDifferences().get("/items").getSummary());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (DiffResultWriter writer = BinaryDiffResultWriter.open(file)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(result(i));
+            }
+        }
+
+        try (DiffResultReader reader = BinaryDiffResultReader.open(file)) {
+            for (int i = 0; i < 1000; i++) {
+                assertResult(i, reader.read());
+            }
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testSmallBatchAndInternTable() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DiffResultWriter writer = new BinaryDiffResultWriter(Channels.newChannel(bytes), 16, 2)) {
+            for (int i = 0; i < 10; i++) {
+                writer.write(result(i));
+            }
+        }
+
+        try (DiffResultReader reader = new BinaryDiffResultReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            for (int i = 0; i < 10; i++) {
+                assertResult(i, reader.read());
+            }
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testChunksAndValueLimits() throws IOException {
+        DiffResult diffResult = new DiffResult(ImmutableMap.of("id", 1), null, null);
+        for (int i = 0; i < 100; i++) {
+            diffResult.add(Difference.of("/items/" + i, DifferenceType.VALUE_NOT_EQUALS, Strings.repeat("x", 1000), Arrays.asList(i, i, i)));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FormatOptions options = FormatOptions.unlimited().withMaxValueChars(10).withMaxElements(2);
+        try (DiffResultWriter writer = new BinaryDiffResultWriter(Channels.newChannel(bytes), 64, 16, options)) {
+            writer.write(diffResult);
+            writer.write(result(2));
+        }
+        Assert.assertTrue(String.valueOf(bytes.size()), bytes.size() < 100 * 100);
+
+        try (DiffResultReader reader = new BinaryDiffResultReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            DiffResult read = reader.read();
+            Assert.assertEquals(100, read.getDifferences().size());
+            Difference last = read.getDifferences().get("/items/99");
+            Assert.assertEquals("xxxxxxxxxx...", last.getLeftValue());
+            Assert.assertEquals("[99, 99, ... 1 more]", last.getRightValue());
+            assertResult(2, reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedLog() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DiffResultWriter writer = new BinaryDiffResultWriter(Channels.newChannel(bytes))) {
+            writer.write(result(1));
+        }
+
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+        try (DiffResultReader reader = new BinaryDiffResultReader(Channels.newChannel(new ByteArrayInputStream(truncated)))) {
+            reader.read();
+        }
+    }
+}
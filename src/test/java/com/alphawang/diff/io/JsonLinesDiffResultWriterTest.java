@@ -0,0 +1,96 @@
+package com.alphawang.diff.io;
+
+import com.alphawang.diff.DiffResult;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.alphawang.diff.io.BinaryDiffResultWriterTest.assertResult;
+import static com.alphawang.diff.io.BinaryDiffResultWriterTest.result;
+
+public class JsonLinesDiffResultWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFile() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (DiffResultWriter writer = JsonLinesDiffResultWriter.open(file)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(result(i));
+            }
+        }
+        Assert.assertEquals(1000, Files.readAllLines(file).size());
+
+        try (DiffResultReader reader = JsonLinesDiffResultReader.open(file)) {
+            for (int i = 0; i < 1000; i++) {
+                assertResult(i, reader.read());
+            }
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testLine() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DiffResultWriter writer = new JsonLinesDiffResultWriter(Channels.newChannel(bytes), 16)) {
+            writer.write(result(2));
+            writer.write(new DiffResult(null, null, null));
+        }
+
+        String log = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(log, log.startsWith("{\"identities\":{\"id\":\"2\"},\"truncated\":true,\"differences\":["
+            + "{\"path\":\"/name\",\"type\":\"VALUE_NOT_EQUALS\",\"summary\":null,\"left\":\"name2\",\"right\":\"é\\n\\\"2\"},"));
+        Assert.assertTrue(log, log.endsWith("\n{\"identities\":null,\"truncated\":false,\"differences\":[]}\n"));
+
+        try (DiffResultReader reader = new JsonLinesDiffResultReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())))) {
+            assertResult(2, reader.read());
+            DiffResult empty = reader.read();
+            Assert.assertNull(empty.getIdentities());
+            Assert.assertFalse(empty.hasDifference());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testFieldOrder() throws IOException {
+        String log = "{\"differences\":[{\"path\":\"/name\",\"type\":\"VALUE_NOT_EQUALS\",\"left\":\"a\",\"right\":\"b\"}],"
+            + "\"truncated\":true,\"identities\":{\"id\":\"1\"}}\n";
+
+        try (DiffResultReader reader = new JsonLinesDiffResultReader(Channels.newChannel(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8))))) {
+            DiffResult diffResult = reader.read();
+            Assert.assertEquals(ImmutableMap.of("id", "1"), diffResult.getIdentities());
+            Assert.assertTrue(diffResult.isTruncated());
+            Assert.assertEquals("b", diffResult.getDifferences().get("/name").getRightValue());
+        }
+    }
+
+    @Test
+    public void testErrorWindow() throws IOException {
+        StringBuilder log = new StringBuilder("\n{\"identities\":null,\"truncated\":false,\"differences\":[{\"path\":\"");
+        for (int i = 0; i < 10000; i++) {
+            log.append('a');
+        }
+        log.append("\",\"unknown\":null}]}\n");
+
+        try (DiffResultReader reader = new JsonLinesDiffResultReader(Channels.newChannel(new ByteArrayInputStream(log.toString().getBytes(StandardCharsets.UTF_8))))) {
+            reader.read();
+            Assert.fail("Expected an IOException");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown field unknown at line 2, column "));
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("aaaa\",\"unknown\":null}]}"));
+            Assert.assertTrue(e.getMessage(), e.getMessage().length() < 200);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.alphawang.diff.path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DiffPathTest {
+
+    @Test
+    public void testToString() {
+        DiffPath itemList = DiffPath.ROOT.child("itemList");
+        DiffPath itemId = itemList.child(0).child("itemId");
+
+        Assert.assertEquals("", DiffPath.ROOT.toString());
+        Assert.assertEquals("/itemList", itemList.toString());
+        Assert.assertEquals("/itemList/0/itemId", itemId.toString());
+        Assert.assertEquals("/itemMap/3", DiffPath.ROOT.child("itemMap").child(3L).toString());
+        Assert.assertEquals("/null", DiffPath.ROOT.child(null).toString());
+    }
+
+    @Test
+    public void testSegment() {
+        DiffPath item = DiffPath.ROOT.child("itemList").child(12);
+
+        Assert.assertEquals("12", item.getSegment());
+        Assert.assertEquals("itemList", item.getParent().getSegment());
+        Assert.assertTrue(item.getParent().getParent().isRoot());
+    }
+
+    @Test
+    public void testToTemplate() {
+        DiffPath itemId = DiffPath.ROOT.child("itemList").child(12).child("itemId");
+        DiffPath mapItem = DiffPath.ROOT.child("itemMap").key("a").child("name");
+
+        Assert.assertEquals("", DiffPath.ROOT.toTemplate());
+        Assert.assertEquals("/itemList/*/itemId", itemId.toTemplate());
+        Assert.assertEquals("/itemMap/*/name", mapItem.toTemplate());
+        Assert.assertEquals("/itemMap/a/name", mapItem.toString());
+    }
+
+    @Test
+    public void testTemplateTrees() {
+        DiffPath itemId = DiffPath.ROOT.child("itemList").child(12).child("itemId");
+        PathTemplate tree = PathTemplate.newTree();
+        PathTemplate other = PathTemplate.newTree();
+
+        PathTemplate template = itemId.getTemplate(tree);
+        Assert.assertEquals("/itemList/*/itemId", template.toString());
+        Assert.assertSame(template, DiffPath.ROOT.child("itemList").child(3).child("itemId").getTemplate(tree));
+        Assert.assertNotSame(template, itemId.getTemplate(other));
+        Assert.assertEquals(template.toString(), itemId.getTemplate(other).toString());
+        Assert.assertSame(template, itemId.getTemplate(tree));
+        Assert.assertSame(tree, DiffPath.ROOT.getTemplate(tree));
+        Assert.assertTrue(DiffPath.ROOT.getTemplate(tree).isRoot());
+    }
+}
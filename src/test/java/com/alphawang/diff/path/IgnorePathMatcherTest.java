@@ -0,0 +1,99 @@
+package com.alphawang.diff.path;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class IgnorePathMatcherTest {
+
+    @Test
+    public void testNone() {
+        Assert.assertTrue(IgnorePathMatcher.NONE.root().isDead());
+        Assert.assertTrue(IgnorePathMatcher.compile(null, null).root().isDead());
+    }
+
+    @Test
+    public void testLiteral() {
+        IgnorePathMatcher matcher = regexes("/itemList/0/modifiedAt");
+
+        Assert.assertTrue(state(matcher, "/itemList/0/modifiedAt").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/0/itemId").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/1/modifiedAt").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemList/1").isDead());
+        Assert.assertTrue(state(matcher, "/itemMap").isDead());
+    }
+
+    @Test
+    public void testSegmentWildcardRegex() {
+        IgnorePathMatcher matcher = regexes("/itemList/\\d+/modifiedAt", "/itemMap/[^/]+/name", "/itemArray/.*");
+
+        Assert.assertTrue(state(matcher, "/itemList/12/modifiedAt").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/a/modifiedAt").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemMap/key/name").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemArray").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemArray/0").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemArray/0/itemId").isIgnored());
+    }
+
+    @Test
+    public void testRegex() {
+        IgnorePathMatcher matcher = regexes(".*/modifiedAt", "/item(List|Map)/1");
+
+        Assert.assertTrue(state(matcher, "/itemList/0/modifiedAt").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemMap/1").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/0/itemId").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/0/itemId").isDead());
+    }
+
+    @Test
+    public void testRegexPruning() {
+        IgnorePathMatcher matcher = regexes("/item(List|Map)/1");
+
+        Assert.assertFalse(state(matcher, "/itemList").isDead());
+        Assert.assertTrue(state(matcher, "/memberSrl").isDead());
+        Assert.assertTrue(state(matcher, "/itemList/1/itemId").isDead());
+    }
+
+    @Test
+    public void testGlob() {
+        IgnorePathMatcher matcher = IgnorePathMatcher.compile(null, ImmutableList.of("/itemList/*/modified*", "/itemMap/**"));
+
+        Assert.assertTrue(state(matcher, "/itemList/0/modifiedAt").isIgnored());
+        Assert.assertFalse(state(matcher, "/itemList/0/createdAt").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemMap/3").isIgnored());
+        Assert.assertTrue(state(matcher, "/itemMap/3/name").isIgnored());
+        Assert.assertTrue(state(matcher, "/id").isDead());
+    }
+
+    @Test
+    public void testKeyWithSeparator() {
+        IgnorePathMatcher matcher = IgnorePathMatcher.compile(ImmutableList.of("/itemMap/a/b/name", "/itemMap/[^/]+/id"), ImmutableList.of("/itemMap/*/code"));
+
+        Assert.assertTrue(state(matcher, "itemMap", "a/b", "name").isIgnored());
+        Assert.assertFalse(state(matcher, "itemMap", "a/b", "id").isIgnored());
+        Assert.assertTrue(state(matcher, "itemMap", "a/b", "code").isIgnored());
+        Assert.assertTrue(state(matcher, "itemMap", "a", "b", "name").isIgnored());
+        Assert.assertTrue(state(matcher, "itemMap", "a", "id").isIgnored());
+        Assert.assertFalse(state(matcher, "itemMap", "c/d", "name").isIgnored());
+    }
+
+    private static IgnorePathMatcher regexes(String... regexes) {
+        return IgnorePathMatcher.compile(ImmutableList.copyOf(regexes), Collections.emptyList());
+    }
+
+    private static IgnorePathMatcher.State state(IgnorePathMatcher matcher, String path) {
+        return state(matcher, path.substring(1).split("/"));
+    }
+
+    private static IgnorePathMatcher.State state(IgnorePathMatcher matcher, String... segments) {
+        IgnorePathMatcher.State state = matcher.root();
+        DiffPath current = DiffPath.ROOT;
+        for (String segment : segments) {
+            current = current.child(segment);
+            state = matcher.child(state, current);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alphawang.diff.plan;
+
+import com.alphawang.diff.MockItem;
+import com.alphawang.diff.MockItems;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassDiffPlanTest {
+
+    @Test
+    public void testPlanIsCached() {
+        Assert.assertSame(ClassDiffPlan.of(MockItems.class), ClassDiffPlan.of(MockItems.class));
+    }
+
+    @Test
+    public void testFields() {
+        ClassDiffPlan plan = ClassDiffPlan.of(MockItem.class);
+
+        Assert.assertEquals(4, plan.getFields().size());
+        Assert.assertEquals("itemId", plan.getFields().get(0).getName());
+        Assert.assertEquals(FieldDiffPlan.FieldKind.SIMPLE, plan.getField("itemId").getKind());
+        Assert.assertEquals(FieldDiffPlan.FieldKind.SIMPLE, plan.getField("createdAt").getKind());
+        Assert.assertEquals(FieldDiffPlan.FieldKind.DYNAMIC, plan.getField("modifiedAt").getKind());
+        Assert.assertTrue(plan.getField("name").isAccessible());
+    }
+}
@@ -0,0 +1,60 @@
+package com.alphawang.diff.plan;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldAccessorsTest {
+
+    @Test
+    public void testReflection() {
+        verify(ClassDiffPlans.of(FieldAccessors.reflection()).get(Primitives.class));
+    }
+
+    @Test
+    public void testMethodHandle() {
+        verify(ClassDiffPlans.of(FieldAccessors.methodHandle()).get(Primitives.class));
+    }
+
+    private void verify(ClassDiffPlan plan) {
+        Primitives left = new Primitives(1L, 2, true, 0.5d, 'a', "x");
+        Primitives right = new Primitives(1L, 3, true, 0.5d, 'b', "y");
+
+        Assert.assertEquals(1L, plan.getField("id").get(left));
+        Assert.assertEquals(2, plan.getField("count").get(left));
+        Assert.assertEquals(true, plan.getField("flag").get(left));
+        Assert.assertEquals(0.5d, plan.getField("ratio").get(left));
+        Assert.assertEquals('a', plan.getField("code").get(left));
+        Assert.assertEquals("x", plan.getField("name").get(left));
+
+        Assert.assertTrue(plan.getField("id").isEqual(left, right));
+        Assert.assertFalse(plan.getField("count").isEqual(left, right));
+        Assert.assertTrue(plan.getField("flag").isEqual(left, right));
+        Assert.assertTrue(plan.getField("ratio").isEqual(left, right));
+        Assert.assertFalse(plan.getField("code").isEqual(left, right));
+        Assert.assertFalse(plan.getField("name").isEqual(left, right));
+        Assert.assertEquals("constant", plan.getField("CONSTANT").get(left));
+        Assert.assertTrue(plan.getField("CONSTANT").isEqual(left, right));
+        Assert.assertEquals(7L, plan.getField("counter").get(left));
+    }
+
+    private static class Primitives {
+        private static final String CONSTANT = "constant";
+        private static long counter = 7L;
+
+        private final long id;
+        private final int count;
+        private final boolean flag;
+        private final double ratio;
+        private final char code;
+        private final String name;
+
+        Primitives(long id, int count, boolean flag, double ratio, char code, String name) {
+            this.id = id;
+            this.count = count;
+            this.flag = flag;
+            this.ratio = ratio;
+            this.code = code;
+            this.name = name;
+        }
+    }
+}
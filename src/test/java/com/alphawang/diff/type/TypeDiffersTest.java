@@ -0,0 +1,39 @@
+package com.alphawang.diff.type;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+public class TypeDiffersTest {
+
+    @Test
+    public void testComparing() {
+        TypeDiffer<BigDecimal> differ = TypeDiffers.comparing(BigDecimal::compareTo);
+        Assert.assertTrue(differ.isEqual(new BigDecimal("1.10"), new BigDecimal("1.1")));
+        Assert.assertFalse(differ.isEqual(new BigDecimal("1.11"), new BigDecimal("1.1")));
+    }
+
+    @Test
+    public void testTolerance() {
+        TypeDiffer<BigDecimal> decimal = TypeDiffers.tolerance(new BigDecimal("0.01"));
+        Assert.assertTrue(decimal.isEqual(new BigDecimal("1.00"), new BigDecimal("1.01")));
+        Assert.assertFalse(decimal.isEqual(new BigDecimal("1.00"), new BigDecimal("1.02")));
+
+        TypeDiffer<Number> number = TypeDiffers.tolerance(0.5);
+        Assert.assertTrue(number.isEqual(1.0, 1.5));
+        Assert.assertFalse(number.isEqual(1.0, 1.6));
+        Assert.assertTrue(number.isEqual(Double.NaN, Double.NaN));
+        Assert.assertFalse(number.isEqual(Double.NaN, 1.0));
+    }
+
+    @Test
+    public void testTruncatedTo() {
+        Instant instant = Instant.parse("2020-01-01T00:00:00.100Z");
+        TypeDiffer<Instant> differ = TypeDiffers.truncatedTo(ChronoUnit.SECONDS);
+        Assert.assertTrue(differ.isEqual(instant, instant.plusMillis(800)));
+        Assert.assertFalse(differ.isEqual(instant, instant.plusMillis(900)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.alphawang.diff.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MyersDiffTest {
+
+    @Test
+    public void testMatch() {
+        // ABCABBA vs CBABAC, the example of Myers' paper, LCS length is 4
+        int[] left = {1, 2, 3, 1, 2, 2, 1};
+        int[] right = {3, 2, 1, 2, 1, 3};
+
+        int[] matches = MyersDiff.match(left, right);
+
+        Assert.assertEquals(4, verify(left, right, matches));
+    }
+
+    @Test
+    public void testInsertAndDelete() {
+        int[] left = {1, 2, 3, 4, 5};
+        int[] right = {0, 1, 2, 4, 5, 6};
+
+        Assert.assertArrayEquals(new int[]{1, 2, -1, 3, 4}, MyersDiff.match(left, right));
+    }
+
+    @Test
+    public void testEmptyAndDisjoint() {
+        Assert.assertArrayEquals(new int[]{-1, -1}, MyersDiff.match(new int[]{1, 2}, new int[0]));
+        Assert.assertArrayEquals(new int[]{-1, -1}, MyersDiff.match(new int[]{1, 2}, new int[]{3, 4, 5}));
+    }
+
+    @Test
+    public void testAgainstDynamicProgramming() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] left = random(random, random.nextInt(30));
+            int[] right = random(random, random.nextInt(30));
+
+            Assert.assertEquals(lcsLength(left, right), verify(left, right, MyersDiff.match(left, right)));
+        }
+    }
+
+    private static int verify(int[] left, int[] right, int[] matches) {
+        int count = 0;
+        int lastRight = -1;
+        for (int i = 0; i < left.length; i++) {
+            if (matches[i] >= 0) {
+                Assert.assertTrue(matches[i] > lastRight);
+                Assert.assertEquals(left[i], right[matches[i]]);
+                lastRight = matches[i];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int lcsLength(int[] left, int[] right) {
+        int[][] lengths = new int[left.length + 1][right.length + 1];
+        for (int i = 1; i <= left.length; i++) {
+            for (int j = 1; j <= right.length; j++) {
+                lengths[i][j] = left[i - 1] == right[j - 1]
+                    ? lengths[i - 1][j - 1] + 1
+                    : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[left.length][right.length];
+    }
+
+    private static int[] random(Random random, int length) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextInt(4);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,39 @@
+package com.alphawang.diff.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PathTrieTest {
+
+    @Test
+    public void testInternAndPath() {
+        PathTrie trie = new PathTrie();
+        String[] paths = {"/orders/1/lines/2/price", "/orders/1/lines/3/price", "/orders/1/id", "", "/", "/a//b/", "name"};
+        int[] ids = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            ids[i] = trie.intern(paths[i]);
+        }
+        for (int i = 0; i < paths.length; i++) {
+            Assert.assertEquals(ids[i], trie.intern(paths[i]));
+            Assert.assertEquals(ids[i], trie.find(paths[i]));
+            Assert.assertEquals(paths[i], trie.path(ids[i]));
+        }
+        Assert.assertEquals(-1, trie.find("/orders/1/lines/4/price"));
+        Assert.assertEquals(-1, trie.find("/orders/2"));
+    }
+
+    @Test
+    public void testSharedPrefixes() {
+        PathTrie trie = new PathTrie();
+        for (int i = 0; i < 1000; i++) {
+            trie.intern("/orders/1/lines/" + i + "/price");
+        }
+        int size = trie.size();
+        for (int i = 0; i < 1000; i++) {
+            trie.intern("/orders/1/lines/" + i + "/quantity");
+        }
+        // only the last segment is new
+        Assert.assertEquals(size + 1000, trie.size());
+        Assert.assertEquals("/orders/1/lines/999/quantity", trie.path(trie.find("/orders/1/lines/999/quantity")));
+    }
+}
@@ -0,0 +1,46 @@
+package com.alphawang.diff.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveArraysTest {
+
+    @Test
+    public void testIsSameType() {
+        Assert.assertTrue(PrimitiveArrays.isSameType(new long[0], new long[1]));
+        Assert.assertFalse(PrimitiveArrays.isSameType(new long[0], new int[0]));
+        Assert.assertFalse(PrimitiveArrays.isSameType(new Long[0], new Long[0]));
+    }
+
+    @Test
+    public void testMismatchAndMatch() {
+        long[] left = {1, 2, 3, 4, 5, 6};
+        long[] right = {1, 0, 0, 4, 5, 0};
+
+        Assert.assertFalse(PrimitiveArrays.equals(left, right));
+        Assert.assertEquals(1, PrimitiveArrays.mismatch(left, right, 0));
+        Assert.assertEquals(3, PrimitiveArrays.match(left, right, 1));
+        Assert.assertEquals(5, PrimitiveArrays.mismatch(left, right, 3));
+        Assert.assertEquals(6, PrimitiveArrays.match(left, right, 5));
+        Assert.assertEquals(-1, PrimitiveArrays.mismatch(left, right, 6));
+        Assert.assertArrayEquals(new long[]{2, 3}, (long[]) PrimitiveArrays.copyOfRange(left, 1, 3));
+    }
+
+    @Test
+    public void testFloatingPointBits() {
+        double[] left = {Double.NaN, 0.0};
+        double[] right = {Double.NaN, -0.0};
+
+        Assert.assertEquals(1, PrimitiveArrays.mismatch(left, right, 0));
+        Assert.assertEquals(-1, PrimitiveArrays.mismatch(new float[]{Float.NaN}, new float[]{Float.NaN}, 0));
+    }
+
+    @Test
+    public void testAllTypes() {
+        Assert.assertTrue(PrimitiveArrays.equals(new int[]{1}, new int[]{1}));
+        Assert.assertEquals(0, PrimitiveArrays.mismatch(new byte[]{1}, new byte[]{2}, 0));
+        Assert.assertEquals(0, PrimitiveArrays.mismatch(new short[]{1}, new short[]{2}, 0));
+        Assert.assertEquals(0, PrimitiveArrays.mismatch(new char[]{'a'}, new char[]{'b'}, 0));
+        Assert.assertEquals(0, PrimitiveArrays.mismatch(new boolean[]{true}, new boolean[]{false}, 0));
+    }
+}